@@ -0,0 +1,53 @@
+package scheduler;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Splitting a command line and dispatching it to its handler. The commands are picked so that the handler
+ * returns before touching the database, which leaves parsing, dispatch and console output.
+ *
+ * Lives in the scheduler package to reach the package-private Session and Scheduler.execute.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommandDispatchBenchmark {
+
+    @Param({
+            "logout",
+            "search_caregiver_schedule 2030-01-01",
+            "reserve 2030-01-01 Pfizer",
+            "upload_availability 2030-01-01 2030-03-31 MON,WED,FRI",
+            "no_such_command"
+    })
+    private String command;
+
+    private Session session;
+
+    @Setup
+    public void setup() {
+        session = new Session(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @Benchmark
+    public boolean dispatch() {
+        return Scheduler.execute(session, command.split(" "));
+    }
+}
@@ -0,0 +1,60 @@
+package scheduler.bench;
+
+import scheduler.db.ConnectionManager;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Points the scheduler at an in-memory H2 database and creates the schema from create.sql.
+ *
+ * The migrations are T-SQL that H2 does not run, so the tables from them that the benchmarks use are created
+ * here instead.
+ */
+final class EmbeddedDatabase {
+
+    // V5__id_blocks.sql, appointment ids are leased from it
+    private static final String CREATE_ID_BLOCKS = "CREATE TABLE IF NOT EXISTS IdBlocks (" +
+            "Name varchar(255), NextValue BIGINT, PRIMARY KEY (Name))";
+
+    private static boolean started = false;
+
+    private EmbeddedDatabase() {
+    }
+
+    static synchronized void start() throws IOException, SQLException {
+        if (started) {
+            return;
+        }
+        // must be set before ConnectionManager reads its settings
+        System.setProperty("JdbcUrl", "jdbc:h2:mem:scheduler;MODE=MSSQLServer;DB_CLOSE_DELAY=-1");
+        String schema;
+        try (InputStream in = EmbeddedDatabase.class.getResourceAsStream("/create.sql")) {
+            if (in == null) {
+                throw new IOException("create.sql is missing from the classpath");
+            }
+            schema = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        for (String ddl : schema.split(";")) {
+            if (!ddl.isBlank()) {
+                execute(ddl);
+            }
+        }
+        execute(CREATE_ID_BLOCKS);
+        started = true;
+    }
+
+    static void execute(String sql) throws SQLException {
+        ConnectionManager cm = new ConnectionManager();
+        Connection con = cm.createConnection();
+        try (Statement statement = con.createStatement()) {
+            statement.execute(sql);
+        } finally {
+            cm.closeConnection();
+        }
+    }
+}
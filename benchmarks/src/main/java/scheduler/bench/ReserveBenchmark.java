@@ -0,0 +1,85 @@
+package scheduler.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import scheduler.db.ConnectionManager;
+import scheduler.service.AvailabilityIndex;
+import scheduler.service.ReservationResult;
+import scheduler.service.ReservationService;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The whole reserve flow against the embedded database. Every iteration seeds exactly as many slots as it
+ * books, so each measured reservation finds a free caregiver.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, batchSize = ReserveBenchmark.BOOKINGS)
+@Measurement(iterations = 10, batchSize = ReserveBenchmark.BOOKINGS)
+@Fork(1)
+public class ReserveBenchmark {
+
+    static final int BOOKINGS = 1000;
+    private static final int CAREGIVERS = 50;
+    private static final int DAYS = BOOKINGS / CAREGIVERS;
+
+    private final ReservationService reservations = new ReservationService();
+    private LocalDate start;
+    private int booked;
+
+    @Setup(Level.Trial)
+    public void setupTrial() throws IOException, SQLException {
+        EmbeddedDatabase.start();
+        for (int c = 0; c < CAREGIVERS; c++) {
+            EmbeddedDatabase.execute("INSERT INTO Caregivers VALUES ('caregiver" + c + "', X'00', X'00')");
+        }
+        EmbeddedDatabase.execute("INSERT INTO Patients VALUES ('patient', X'00', X'00')");
+        EmbeddedDatabase.execute("INSERT INTO Vaccines VALUES ('Pfizer', 2000000000)");
+        start = LocalDate.now().plusDays(1);
+    }
+
+    @Setup(Level.Iteration)
+    public void seedSlots() throws SQLException {
+        // a fresh stretch of dates every iteration keeps the slots from overlapping with earlier ones
+        start = start.plusDays(DAYS);
+        ConnectionManager cm = new ConnectionManager();
+        Connection con = cm.createConnection();
+        try (PreparedStatement statement = con.prepareStatement("INSERT INTO Availabilities VALUES (?, ?)")) {
+            for (int d = 0; d < DAYS; d++) {
+                for (int c = 0; c < CAREGIVERS; c++) {
+                    statement.setDate(1, Date.valueOf(start.plusDays(d)));
+                    statement.setString(2, "caregiver" + c);
+                    statement.addBatch();
+                }
+            }
+            statement.executeBatch();
+        } finally {
+            cm.closeConnection();
+        }
+        AvailabilityIndex.getInstance().reload();
+        booked = 0;
+    }
+
+    @Benchmark
+    public ReservationResult reserve() throws SQLException {
+        Date date = Date.valueOf(start.plusDays(booked++ / CAREGIVERS));
+        return reservations.reserve(date, "Pfizer", "patient");
+    }
+}
@@ -0,0 +1,54 @@
+package scheduler.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import scheduler.service.AvailabilityIndex;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Looking up the caregivers of a date in the in-memory availability index.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScheduleLookupBenchmark {
+
+    @Param({"50", "500"})
+    private int caregivers;
+
+    private static final int DAYS = 365;
+
+    private final AvailabilityIndex index = AvailabilityIndex.getInstance();
+    private LocalDate start;
+
+    @Setup
+    public void setup() {
+        start = LocalDate.now();
+        for (int d = 0; d < DAYS; d++) {
+            for (int c = 0; c < caregivers; c++) {
+                index.add(start.plusDays(d), "caregiver" + c);
+            }
+        }
+    }
+
+    @Benchmark
+    public List<String> caregiversOn() {
+        return index.caregiversOn(start.plusDays(ThreadLocalRandom.current().nextInt(DAYS)));
+    }
+}
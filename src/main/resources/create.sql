@@ -31,4 +31,4 @@ CREATE TABLE Appointments (
                               Caregiver varchar(255) REFERENCES Caregivers,
                               Vaccine varchar(255) REFERENCES Vaccines,
                               PRIMARY KEY (appoID)
-);
\ No newline at end of file
+);
@@ -0,0 +1,13 @@
+-- show_appointments pages through one user's appointments in id order,
+-- the included columns let it answer from the index alone
+-- databases created from an older create.sql already have these indexes
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'IX_Appointments_Patient')
+CREATE INDEX IX_Appointments_Patient ON Appointments (Patient, appoID)
+    INCLUDE (Vaccine, Time, Caregiver) WITH (ONLINE = ON);
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'IX_Appointments_Caregiver')
+CREATE INDEX IX_Appointments_Caregiver ON Appointments (Caregiver, appoID)
+    INCLUDE (Vaccine, Time, Patient) WITH (ONLINE = ON);
+-- per-day lookups of booked appointments
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'IX_Appointments_Time')
+CREATE INDEX IX_Appointments_Time ON Appointments (Time)
+    INCLUDE (Caregiver, Vaccine) WITH (ONLINE = ON);
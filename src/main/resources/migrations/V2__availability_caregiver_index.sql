@@ -0,0 +1,2 @@
+-- the primary key leads with Time, this serves lookups of one caregiver's availability
+CREATE INDEX IX_Availabilities_Username ON Availabilities (Username, Time) WITH (ONLINE = ON);
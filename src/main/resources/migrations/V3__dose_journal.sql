@@ -0,0 +1,6 @@
+-- how far each dose journal has been written to Vaccines, updated in the same transaction as the doses
+CREATE TABLE DoseJournal (
+    Node varchar(255),
+    FlushedSeq BIGINT,
+    PRIMARY KEY (Node)
+);
@@ -0,0 +1,15 @@
+-- slots and doses claimed by hold until confirm books them or the hold expires,
+-- appoID is the id the appointment will get and ties the dose journal to the hold
+CREATE TABLE Holds (
+    Token varchar(64),
+    appoID INT,
+    Time date,
+    Patient varchar(255) REFERENCES Patients,
+    Caregiver varchar(255) REFERENCES Caregivers,
+    Vaccine varchar(255) REFERENCES Vaccines,
+    ExpiresAt datetime2,
+    PRIMARY KEY (Token)
+);
+CREATE UNIQUE INDEX IX_Holds_appoID ON Holds (appoID);
+-- the sweeper releases the oldest expired holds first
+CREATE INDEX IX_Holds_ExpiresAt ON Holds (ExpiresAt);
@@ -0,0 +1,7 @@
+-- the next id block to lease per sequence, databases created from an older create.sql already have it
+IF OBJECT_ID('IdBlocks', 'U') IS NULL
+CREATE TABLE IdBlocks (
+    Name varchar(255),
+    NextValue BIGINT,
+    PRIMARY KEY (Name)
+);
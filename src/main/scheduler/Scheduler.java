@@ -1,257 +1,427 @@
 package scheduler;
 
 import scheduler.db.ConnectionManager;
+import scheduler.db.MigrationRunner;
+import scheduler.db.SqlTracer;
 import scheduler.model.Caregiver;
 import scheduler.model.Patient;
 import scheduler.model.Vaccine;
+import scheduler.repository.Repositories;
+import scheduler.service.AvailabilityIndex;
+import scheduler.service.BatchReport;
+import scheduler.service.BatchReservation;
+import scheduler.service.BulkImporter;
+import scheduler.service.CaregiverLoad;
+import scheduler.service.CommandMetrics;
+import scheduler.service.DoseInventory;
+import scheduler.service.HoldSweeper;
+import scheduler.service.ImportStats;
+import scheduler.service.ReservationResult;
+import scheduler.service.ReservationService;
+import scheduler.service.ScheduleSearch;
+import scheduler.service.UsernameRegistry;
+import scheduler.service.Waitlist;
+import scheduler.util.CredentialEngine;
+import scheduler.util.OutputFormat;
+import scheduler.util.PasswordPolicy;
+import scheduler.util.ReadThroughCache;
+import scheduler.util.TableWriter;
 import scheduler.util.Util;
 
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.sql.SQLException;
 import java.sql.Date;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.time.*;
 import java.time.format.*;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
 
 public class Scheduler {
 
-    // objects to keep track of the currently logged-in user
-    // Note: it is always true that at most one of currentCaregiver and currentPatient is not null
-    //       since only one user can be logged-in at a time
-    private static Caregiver currentCaregiver = null;
-    private static Patient currentPatient = null;
+    private static final ReservationService reservationService = new ReservationService();
+    private static final AvailabilityIndex availabilityIndex = AvailabilityIndex.getInstance();
+    private static final ScheduleSearch scheduleSearch = new ScheduleSearch();
+    private static final CommandMetrics commandMetrics = CommandMetrics.getInstance();
+    private static final Waitlist waitlist = Waitlist.getInstance();
+    // expired holds released per transaction
+    private static final int HOLD_SWEEP_BATCH_SIZE = 100;
+    private static final HoldSweeper holdSweeper = new HoldSweeper(reservationService, HOLD_SWEEP_BATCH_SIZE);
+
+    // the largest number of days a single upload_availability may cover
+    private static final int MAX_UPLOAD_DAYS = 366;
+    // rows written per transaction by the import command
+    private static final int IMPORT_CHUNK_SIZE = 500;
+    // statements listed by stats sql
+    private static final int SQL_SUMMARY_SIZE = 20;
 
     public static void main(String[] args) {
+        // check 1: scheduler --server <port> serves clients over a local socket instead of the console
+        if (args.length > 0 && !args[0].equals("--server")) {
+            System.out.println("Usage: scheduler [--server <port>]");
+            return;
+        }
+        int port = -1;
+        if (args.length > 0) {
+            try {
+                port = Integer.parseInt(args[1]);
+            } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+                System.out.println("Usage: scheduler [--server <port>]");
+                return;
+            }
+        }
+
+        // Backend=memory runs without a database, the schema and the dose journal only exist for SQL
+        boolean jdbc = Repositories.get().isJdbc();
+
+        // bring the schema up to date before anything reads from it
+        if (jdbc) {
+            try {
+                new MigrationRunner().migrate();
+            } catch (SQLException | IOException e) {
+                System.out.println("Error occurred when migrating the database");
+                e.printStackTrace();
+            }
+        }
+
+        // warm up the availability index, searches fall back to the database if this fails
+        try {
+            availabilityIndex.start(300);
+        } catch (SQLException e) {
+            System.out.println("Error occurred when loading availabilities");
+        }
+        // StatsDumpFile turns on writing the per-command statistics every StatsDumpSeconds seconds
+        String statsFile = System.getenv("StatsDumpFile");
+        if (statsFile != null) {
+            long period = 60;
+            try {
+                period = Long.parseLong(System.getenv().getOrDefault("StatsDumpSeconds", "60"));
+            } catch (NumberFormatException e) {
+                System.out.println("Ignoring invalid value for StatsDumpSeconds");
+            }
+            commandMetrics.startDump(Paths.get(statsFile), period);
+        }
+        // without the load counters reserve still works, it just spreads bookings less evenly
+        try {
+            CaregiverLoad.getInstance().load();
+        } catch (SQLException e) {
+            System.out.println("Error occurred when loading caregiver load");
+        }
+        // without the dose inventory every dose change goes to the Vaccines table directly
+        if (jdbc) {
+            try {
+                DoseInventory.getInstance().start(
+                        Long.parseLong(System.getenv().getOrDefault("DoseFlushMs", "1000")));
+            } catch (SQLException | IOException | NumberFormatException e) {
+                System.out.println("Error occurred when loading the dose inventory");
+            }
+        }
+        // without the dispatcher reserve ... wait is refused and patients retry by hand
+        waitlist.start(reservationService, scheduleSearch);
+        // holds left over from before a restart are released on the first sweep
+        try {
+            holdSweeper.start(Long.parseLong(System.getenv().getOrDefault("HoldSweepMs", "5000")));
+        } catch (IllegalArgumentException e) {
+            System.out.println("Error occurred when starting the hold sweeper");
+        }
+        // without the username filters every create_* checks the table directly
+        try {
+            UsernameRegistry.patients().load();
+            UsernameRegistry.caregivers().load();
+        } catch (SQLException e) {
+            System.out.println("Error occurred when loading usernames");
+        }
+
+        if (port >= 0) {
+            try {
+                new SchedulerServer(port).serve();
+            } catch (IOException e) {
+                System.out.println("Error occurred when running the server");
+                e.printStackTrace();
+            } finally {
+                holdSweeper.shutdown();
+                DoseInventory.getInstance().shutdown();
+                Repositories.get().shutdown();
+            }
+            return;
+        }
+
+        Session session = new Session(System.out);
+        runSession(session, new BufferedReader(new InputStreamReader(System.in)), true);
+        holdSweeper.shutdown();
+        DoseInventory.getInstance().shutdown();
+        Repositories.get().shutdown();
+    }
+
+    static void printGreeting(PrintStream out) {
         // printing greetings text
-        System.out.println();
-        System.out.println("Welcome to the COVID-19 Vaccine Reservation Scheduling Application!");
-        System.out.println("*** Please enter one of the following commands ***");
-        System.out.println("> create_patient <username> <password>");  //TODO: implement create_patient (Part 1)
-        System.out.println("> create_caregiver <username> <password>");
-        System.out.println("> login_patient <username> <password>");  // TODO: implement login_patient (Part 1)
-        System.out.println("> login_caregiver <username> <password>");
-        System.out.println("> search_caregiver_schedule <date>");  // TODO: implement search_caregiver_schedule (Part 2)
-        System.out.println("> reserve <date> <vaccine>");  // TODO: implement reserve (Part 2)
-        System.out.println("> upload_availability <date>");
-        System.out.println("> cancel <appointment_id>");  // TODO: implement cancel (extra credit)
-        System.out.println("> add_doses <vaccine> <number>");
-        System.out.println("> show_appointments");  // TODO: implement show_appointments (Part 2)
-        System.out.println("> logout");  // TODO: implement logout (Part 2)
-        System.out.println("> quit");
-        System.out.println();
-
-        // read input from user
-        BufferedReader r = new BufferedReader(new InputStreamReader(System.in));
+        out.println();
+        out.println("Welcome to the COVID-19 Vaccine Reservation Scheduling Application!");
+        out.println("*** Please enter one of the following commands ***");
+        out.println("> create_patient <username> <password>");  //TODO: implement create_patient (Part 1)
+        out.println("> create_caregiver <username> <password>");
+        out.println("> login_patient <username> <password>");  // TODO: implement login_patient (Part 1)
+        out.println("> login_caregiver <username> <password>");
+        out.println("> search_caregiver_schedule <date>");  // TODO: implement search_caregiver_schedule (Part 2)
+        out.println("> search_caregiver_schedule <from> <to>");
+        out.println("> next_available <vaccine> [from]");
+        out.println("> reserve <date> <vaccine> [wait [<to>]]");  // TODO: implement reserve (Part 2)
+        out.println("> waitlist");
+        out.println("> reserve_batch <file>");
+        out.println("> hold <date> <vaccine>");
+        out.println("> confirm <hold_token>");
+        out.println("> upload_availability <date>");
+        out.println("> upload_availability <from> <to> [MON,TUE,...]");
+        out.println("> cancel <appointment_id>");
+        out.println("> add_doses <vaccine> <number>");
+        out.println("> show_appointments [after_id] [limit]");  // TODO: implement show_appointments (Part 2)
+        out.println("> logout");  // TODO: implement logout (Part 2)
+        out.println("> import <file>");
+        out.println("> format [text | tsv | json]");
+        out.println("> pool_stats");
+        out.println("> stats [reset | sql | cache]");
+        out.println("> quit");
+        out.println();
+    }
+
+    // reads commands for one session until the user quits or the input ends, a read error ends a socket
+    // session since every later read on a reset connection fails the same way
+    static void runSession(Session session, BufferedReader r, boolean console) {
+        printGreeting(session.out);
         while (true) {
-            System.out.print("> ");
-            String response = "";
+            session.out.print("> ");
+            session.out.flush();
+            String response;
             try {
                 response = r.readLine();
             } catch (IOException e) {
-                System.out.println("Please try again!");
-            }
-            // split the user input by spaces
-            String[] tokens = response.split(" ");
-            // check if input exists
-            if (tokens.length == 0) {
-                System.out.println("Please try again!");
+                if (!console) {
+                    return;
+                }
+                session.out.println("Please try again!");
                 continue;
             }
-            // determine which operation to perform
-            String operation = tokens[0];
-            if (operation.equals("create_patient")) {
-                createPatient(tokens);
-            } else if (operation.equals("create_caregiver")) {
-                createCaregiver(tokens);
-            } else if (operation.equals("login_patient")) {
-                loginPatient(tokens);
-            } else if (operation.equals("login_caregiver")) {
-                loginCaregiver(tokens);
-            } else if (operation.equals("search_caregiver_schedule")) {
-                searchCaregiverSchedule(tokens);
-            } else if (operation.equals("reserve")) {
-                reserve(tokens);
-            } else if (operation.equals("upload_availability")) {
-                uploadAvailability(tokens);
-            } else if (operation.equals("cancel")) {
-                cancel(tokens);
-            } else if (operation.equals("add_doses")) {
-                addDoses(tokens);
-            } else if (operation.equals("show_appointments")) {
-                showAppointments(tokens);
-            } else if (operation.equals("logout")) {
-                logout(tokens);
-            } else if (operation.equals("quit")) {
-                System.out.println("Bye!");
+            if (response == null) {
                 return;
-            } else {
-                System.out.println("Invalid operation name!");
             }
+            // split the user input by spaces
+            String[] tokens = response.split(" ");
+            try {
+                if (!execute(session, tokens)) {
+                    return;
+                }
+            } catch (RuntimeException e) {
+                // input a handler does not validate, such as a number that is not one, must not end the session
+                session.out.println("Please try again!");
+                e.printStackTrace();
+            }
+        }
+    }
+
+    // runs a single command, returns false once the session should end
+    static boolean execute(Session session, String[] tokens) {
+        // check if input exists
+        if (tokens.length == 0) {
+            session.out.println("Please try again!");
+            return true;
+        }
+        CommandMetrics.Timer timer = commandMetrics.start(tokens[0]);
+        try {
+            return dispatch(session, tokens, timer);
+        } finally {
+            timer.stop();
+        }
+    }
+
+    private static boolean dispatch(Session session, String[] tokens, CommandMetrics.Timer timer) {
+        // determine which operation to perform
+        String operation = tokens[0];
+        if (operation.equals("create_patient")) {
+            createPatient(session, tokens);
+        } else if (operation.equals("create_caregiver")) {
+            createCaregiver(session, tokens);
+        } else if (operation.equals("login_patient")) {
+            loginPatient(session, tokens);
+        } else if (operation.equals("login_caregiver")) {
+            loginCaregiver(session, tokens);
+        } else if (operation.equals("search_caregiver_schedule")) {
+            searchCaregiverSchedule(session, tokens);
+        } else if (operation.equals("next_available")) {
+            nextAvailable(session, tokens);
+        } else if (operation.equals("reserve")) {
+            reserve(session, tokens);
+        } else if (operation.equals("reserve_batch")) {
+            reserveBatch(session, tokens);
+        } else if (operation.equals("waitlist")) {
+            showWaitlist(session, tokens);
+        } else if (operation.equals("hold")) {
+            hold(session, tokens);
+        } else if (operation.equals("confirm")) {
+            confirm(session, tokens);
+        } else if (operation.equals("upload_availability")) {
+            uploadAvailability(session, tokens);
+        } else if (operation.equals("cancel")) {
+            cancel(session, tokens);
+        } else if (operation.equals("add_doses")) {
+            addDoses(session, tokens);
+        } else if (operation.equals("show_appointments")) {
+            showAppointments(session, tokens);
+        } else if (operation.equals("logout")) {
+            logout(session, tokens);
+        } else if (operation.equals("import")) {
+            importFile(session, tokens);
+        } else if (operation.equals("format")) {
+            format(session, tokens);
+        } else if (operation.equals("pool_stats")) {
+            poolStats(session, tokens);
+        } else if (operation.equals("stats")) {
+            stats(session, tokens);
+        } else if (operation.equals("quit")) {
+            session.out.println("Bye!");
+            return false;
+        } else {
+            // do not create a metrics entry for every typo
+            timer.cancel();
+            session.out.println("Invalid operation name!");
         }
+        return true;
     }
 
-    private static void createPatient(String[] tokens) {
+    private static void createPatient(Session session, String[] tokens) {
         // TODO: Part 1
         // create_patient <username> <password>
         // check 1: the length for tokens need to be exactly 3 to include all information (with the operation name)
         if (tokens.length != 3) {
-            System.out.println("Please try again!");
+            session.out.println("Please try again!");
             return;
         }
         String username = tokens[1];
         String password = tokens[2];
         //Extra credit to add guidelines for strong passwords
-        if (password.length() < 8) {
-            System.out.println("A strong password has to be at least 8 characters.");
-            System.out.println("Please try again!");
-            return;
-        }
-        int lower = 0;
-        int upper = 0;
-        int number = 0;
-        int special = 0;
-        for (int i = 0; i < password.length(); i++) {
-            //lowercase
-            if (password.charAt(i) >= 97 && password.charAt(i) <= 122 ) {
-                lower++;
-            }
-            //uppercase
-            if (password.charAt(i) >= 65 && password.charAt(i) <= 90 ) {
-                upper++;
-            }
-            //number
-            if (password.charAt(i) >= 48 && password.charAt(i) <= 57 ) {
-                number++;
-            }
-            //special characters
-            if (password.charAt(i) == 33 || password.charAt(i) == 42
-                    ||password.charAt(i) == 47 || password.charAt(i) == 95) {
-                special++;
-            }
-        }
-        if(lower == 0 ){
-            System.out.println("A strong password should include lowercase letter.");
-            System.out.println("Please try again!");
-            return;
-        }else if(upper == 0){
-            System.out.println("A strong password should include uppercase letter.");
-            System.out.println("Please try again!");
-            return;
-        }else if(number == 0){
-            System.out.println("A strong password should include a number.");
-            System.out.println("Please try again!");
-            return;
-        }else if(special == 0){
-            System.out.println("A strong password has to included of at least one special character, from “!”, “@”, “#”, “?”.");
-            System.out.println("Please try again!");
+        String weakness = PasswordPolicy.check(password);
+        if (weakness != null) {
+            session.out.println(weakness);
+            session.out.println("Please try again!");
             return;
         }
         //check if the username has been taken already
-        if (usernameExistsPatient(username)) {
-            System.out.println("Username taken, try again!");
+        if (usernameExistsPatient(session, username)) {
+            session.out.println("Username taken, try again!");
             return;
         }
         byte[] salt = Util.generateSalt();
-        byte[] hash = Util.generateHash(password, salt);
+        byte[] hash;
+        try {
+            hash = CredentialEngine.getInstance().hash(password, salt);
+        } catch (CredentialEngine.OverloadedException e) {
+            session.out.println("The server is busy, please try again!");
+            return;
+        }
         // create the Patient
         try {
-            currentPatient = new Patient.PatientBuilder(username, salt, hash).build();
+            Patient patient = new Patient.PatientBuilder(username, salt, hash).build();
             // save to caregiver information to our database
-            currentPatient.saveToDB();
-            System.out.println("Created Patient user " + username);
+            patient.saveToDB();
+            // logged in only once the insert succeeded, a failed one must not leave the session as another user
+            session.currentPatient = patient;
+            session.out.println("Created Patient user " + username);
         } catch (SQLException e) {
-            System.out.println("Create failed");
+            if (takenSinceStartup(UsernameRegistry.patients(), username)) {
+                session.out.println("Username taken, try again!");
+                return;
+            }
+            session.out.println("Create failed");
             e.printStackTrace();
         }
     }
 
-    private static void createCaregiver(String[] tokens) {
+    private static void createCaregiver(Session session, String[] tokens) {
         // create_caregiver <username> <password>
         // check 1: the length for tokens need to be exactly 3 to include all information (with the operation name)
         if (tokens.length != 3) {
-            System.out.println("Failed to create user.");
+            session.out.println("Failed to create user.");
             return;
         }
         String username = tokens[1];
         String password = tokens[2];
         // check 2: check if the username has been taken already
-        if (usernameExistsCaregiver(username)) {
-            System.out.println("Username taken, try again!");
+        if (usernameExistsCaregiver(session, username)) {
+            session.out.println("Username taken, try again!");
             return;
         }
         byte[] salt = Util.generateSalt();
-        byte[] hash = Util.generateHash(password, salt);
+        byte[] hash;
+        try {
+            hash = CredentialEngine.getInstance().hash(password, salt);
+        } catch (CredentialEngine.OverloadedException e) {
+            session.out.println("The server is busy, please try again!");
+            return;
+        }
         // create the caregiver
         try {
-            currentCaregiver = new Caregiver.CaregiverBuilder(username, salt, hash).build();
+            Caregiver caregiver = new Caregiver.CaregiverBuilder(username, salt, hash).build();
             // save to caregiver information to our database
-            currentCaregiver.saveToDB();
-            System.out.println("Created user " + username);
+            caregiver.saveToDB();
+            // logged in only once the insert succeeded, a failed one must not leave the session as another user
+            session.currentCaregiver = caregiver;
+            session.out.println("Created user " + username);
         } catch (SQLException e) {
-            System.out.println("Failed to create user.");
+            if (takenSinceStartup(UsernameRegistry.caregivers(), username)) {
+                session.out.println("Username taken, try again!");
+                return;
+            }
+            session.out.println("Failed to create user.");
             e.printStackTrace();
         }
     }
 
-    private static boolean usernameExistsCaregiver(String username) {
-        ConnectionManager cm = new ConnectionManager();
-        Connection con = cm.createConnection();
+    // the username filter does not see names another process created after startup, so a failed insert may
+    // just mean the name was taken
+    private static boolean takenSinceStartup(UsernameRegistry registry, String username) {
+        try {
+            return registry.existsInTable(username);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
 
-        String selectUsername = "SELECT * FROM Caregivers WHERE Username = ?";
+    private static boolean usernameExistsCaregiver(Session session, String username) {
         try {
-            PreparedStatement statement = con.prepareStatement(selectUsername);
-            statement.setString(1, username);
-            ResultSet resultSet = statement.executeQuery();
-            // returns false if the cursor is not before the first record or if there are no rows in the ResultSet.
-            return resultSet.isBeforeFirst();
+            return UsernameRegistry.caregivers().exists(username);
         } catch (SQLException e) {
-            System.out.println("Error occurred when checking username");
+            session.out.println("Error occurred when checking username");
             e.printStackTrace();
-        } finally {
-            cm.closeConnection();
         }
         return true;
     }
 
-    private static boolean usernameExistsPatient(String username) {
-        ConnectionManager cm = new ConnectionManager();
-        Connection con = cm.createConnection();
-
-        String selectUsername = "SELECT * FROM Patients WHERE Username = ?";
+    private static boolean usernameExistsPatient(Session session, String username) {
         try {
-            PreparedStatement statement = con.prepareStatement(selectUsername);
-            statement.setString(1, username);
-            ResultSet resultSet = statement.executeQuery();
-            // returns false if the cursor is not before the first record or if there are no rows in the ResultSet.
-            return resultSet.isBeforeFirst();
+            return UsernameRegistry.patients().exists(username);
         } catch (SQLException e) {
-            System.out.println("Error occurred when checking username");
+            session.out.println("Error occurred when checking username");
             e.printStackTrace();
-        } finally {
-            cm.closeConnection();
         }
         return true;
     }
 
-    private static void loginPatient(String[] tokens) {
+    private static void loginPatient(Session session, String[] tokens) {
         // TODO: Part 1
         // login_patient <username> <password>
         // check 1: if someone's already logged-in, they need to log out first
-        if (currentCaregiver != null || currentPatient != null) {
-            System.out.println("User already logged-in!");
-            System.out.println("Please logout first!");
+        if (session.currentCaregiver != null || session.currentPatient != null) {
+            session.out.println("User already logged-in!");
+            session.out.println("Please logout first!");
             return;
         }
         // check 2: the length for tokens need to be exactly 3 to include all information (with the operation name)
         if (tokens.length != 3) {
-            System.out.println("Login failed.");
+            session.out.println("Login failed.");
             return;
         }
         String username = tokens[1];
@@ -261,29 +431,32 @@ public class Scheduler {
         try {
             patient = new Patient.PatientGetter(username, password).get();
         } catch (SQLException e) {
-            System.out.println("Error occurred when logging in");
+            session.out.println("Error occurred when logging in");
             e.printStackTrace();
+        } catch (CredentialEngine.OverloadedException e) {
+            session.out.println("The server is busy, please try again!");
+            return;
         }
         // check if the login was successful
         if (patient == null) {
-            System.out.println("Patient Login failed.");
+            session.out.println("Patient Login failed.");
         } else {
-            System.out.println("Patient logged in as: " + username);
-            currentPatient = patient;
+            session.out.println("Patient logged in as: " + username);
+            session.currentPatient = patient;
         }
     }
 
-    private static void loginCaregiver(String[] tokens) {
+    private static void loginCaregiver(Session session, String[] tokens) {
         // login_caregiver <username> <password>
         // check 1: if someone's already logged-in, they need to log out first
-        if (currentCaregiver != null || currentPatient != null) {
-            System.out.println("User already logged in.");
-            System.out.println("Please logout first!");
+        if (session.currentCaregiver != null || session.currentPatient != null) {
+            session.out.println("User already logged in.");
+            session.out.println("Please logout first!");
             return;
         }
         // check 2: the length for tokens need to be exactly 3 to include all information (with the operation name)
         if (tokens.length != 3) {
-            System.out.println("Login failed.");
+            session.out.println("Login failed.");
             return;
         }
         String username = tokens[1];
@@ -293,257 +466,474 @@ public class Scheduler {
         try {
             caregiver = new Caregiver.CaregiverGetter(username, password).get();
         } catch (SQLException e) {
-            System.out.println("Login failed.");
+            session.out.println("Login failed.");
             e.printStackTrace();
+        } catch (CredentialEngine.OverloadedException e) {
+            session.out.println("The server is busy, please try again!");
+            return;
         }
         // check if the login was successful
         if (caregiver == null) {
-            System.out.println("Caregiver Login failed.");
+            session.out.println("Caregiver Login failed.");
         } else {
-            System.out.println("Caregiver Logged in as: " + username);
-            currentCaregiver = caregiver;
+            session.out.println("Caregiver Logged in as: " + username);
+            session.currentCaregiver = caregiver;
         }
     }
 
-    private static void searchCaregiverSchedule(String[] tokens) {
+    private static void searchCaregiverSchedule(Session session, String[] tokens) {
         // TODO: Part 2
+        // search_caregiver_schedule <date> | search_caregiver_schedule <from> <to>
         // check 1: If no user is logged in
-        if (currentCaregiver == null && currentPatient == null) {
-            System.out.println("Please login first.");
+        if (session.currentCaregiver == null && session.currentPatient == null) {
+            session.out.println("Please login first.");
             return;
         }
         // check 2: Check the input format
-        if (tokens.length != 2) {
-            System.out.println("Invalid input format, please try again!");
-            System.out.println("The right format is: search_caregiver_schedule year-month-day");
+        if (tokens.length != 2 && tokens.length != 3) {
+            session.out.println("Invalid input format, please try again!");
+            session.out.println("The right format is: search_caregiver_schedule year-month-day [year-month-day]");
             return;
         }
-        // check 3: Check if the date is future time and matches the real calendar
+        // check 3: Check if the dates are future time and match the real calendar
+        LocalDate from;
+        LocalDate to;
         try {
             LocalDate today = LocalDate.now();
-            System.out.println("The current time is: " + today);
-            System.out.println("The input time is:   " + LocalDate.parse(tokens[1]));
-            LocalDate date = LocalDate.parse(tokens[1]);
-            if (date.isBefore(today)) {
-                System.out.println("Past results cannot be displayed!");
+            from = LocalDate.parse(tokens[1]);
+            to = tokens.length == 3 ? LocalDate.parse(tokens[2]) : from;
+            if (session.format == OutputFormat.TEXT) {
+                session.out.println("The current time is: " + today);
+                session.out.println("The input time is:   " + from + (tokens.length == 3 ? " to " + to : ""));
+            }
+            if (from.isBefore(today)) {
+                session.out.println("Past results cannot be displayed!");
                 return;
             }
         } catch (DateTimeParseException e) {
-            System.out.println("Invalid input date, please try again!");
-            System.out.println("The right format is: search_caregiver_schedule year-month-day");
+            session.out.println("Invalid input date, please try again!");
+            session.out.println("The right format is: search_caregiver_schedule year-month-day [year-month-day]");
+            return;
+        }
+        // check 4: the range must be in order and not longer than an upload
+        if (to.isBefore(from) || ChronoUnit.DAYS.between(from, to) >= MAX_UPLOAD_DAYS) {
+            session.out.println("Please search at most " + MAX_UPLOAD_DAYS + " days, the first date first!");
             return;
         }
-        ConnectionManager cm = new ConnectionManager();
-        Connection con = cm.createConnection();
+        try {
+            if (tokens.length == 3) {
+                // one row per day with open slots, reserve then picks a caregiver on the chosen day
+                Map<LocalDate, Integer> days = scheduleSearch.openSlots(from, to);
+                if (days.isEmpty()) {
+                    session.out.println("No result for such dates!");
+                    return;
+                }
+                try (TableWriter table = session.table()
+                        .column("date", "Date : ")
+                        .column("open_slots", "Open slots : ")) {
+                    for (Map.Entry<LocalDate, Integer> entry : days.entrySet()) {
+                        table.row(entry.getKey(), entry.getValue());
+                    }
+                }
+                return;
+            }
+            List<String> caregivers = scheduleSearch.caregiversOn(from);
+            if (caregivers.isEmpty()) {
+                session.out.println("No result for such date!");
+                return;
+            }
+            try (TableWriter table = session.table().column("caregiver", "Care_username : ")) {
+                for (String caregiver : caregivers) {
+                    table.row(caregiver);
+                }
+            }
+            try (TableWriter table = session.table()
+                    .column("vaccine", "Vaccine name : ")
+                    .column("doses", "Number of doses : ")) {
+                for (Map.Entry<String, Integer> entry : scheduleSearch.vaccineDoses().entrySet()) {
+                    table.row(entry.getKey(), entry.getValue());
+                }
+            }
+        } catch (SQLException e) {
+            session.out.println("Error occurred when searching caregiver schedule!");
+            e.printStackTrace();
+        }
+    }
 
+    private static void nextAvailable(Session session, String[] tokens) {
+        // next_available <vaccine> [from]
+        // check 1: If no user is logged in
+        if (session.currentCaregiver == null && session.currentPatient == null) {
+            session.out.println("Please login first.");
+            return;
+        }
+        // check 2: the vaccine and at most a date to start from
+        if (tokens.length != 2 && tokens.length != 3) {
+            session.out.println("Please try again!");
+            session.out.println("The correct input format is: next_available <vaccine> [year-month-day]");
+            return;
+        }
+        // check 3: the search starts today at the earliest
+        LocalDate today = LocalDate.now();
+        LocalDate from = today;
+        if (tokens.length == 3) {
+            try {
+                from = LocalDate.parse(tokens[2]);
+            } catch (DateTimeParseException e) {
+                session.out.println("Invalid input date, please try again!");
+                return;
+            }
+            if (from.isBefore(today)) {
+                session.out.println("Past results cannot be displayed!");
+                return;
+            }
+        }
         try {
-            //PreparedStatement statement = con.prepareStatement(getSchedule);
-            PreparedStatement statement = con.prepareStatement("SELECT DISTINCT A.Username, V.Name, V.Doses FROM Availabilities AS A, Vaccines AS V, Caregivers As C WHERE A.Time = ? ORDER BY A.Username");
-            statement.setString(1, tokens[1]);
-            SimpleDateFormat sdf1 = new SimpleDateFormat("yyyy-mm-dd");
-            java.util.Date sqlDate = sdf1.parse(tokens[1]);
-            ResultSet rs = statement.executeQuery();
-            if(!rs.next()) {
-                System.out.println("No result for such date!");
-            } else {
-                    do{
-                    System.out.println("Care_username : " + rs.getString(1) +
-                            " Vaccine name : " + rs.getString(2) +
-                            " Number of doses : " + rs.getInt(3));
-                } while (rs.next());
-            }
-            con.close();
-        } catch (SQLException | ParseException e) {
-            System.out.println("Error occurred when searching caregiver schedule!");
+            // check 4: a free day is only worth showing if there is a dose to go with it
+            int doses = scheduleSearch.dosesLeft(tokens[1]);
+            if (doses < 0) {
+                session.out.println("No such vaccine!");
+                return;
+            }
+            if (doses == 0) {
+                session.out.println("Not enough available doses!");
+                return;
+            }
+            LocalDate date = scheduleSearch.nextAvailable(from);
+            if (date == null) {
+                session.out.println("No available date for " + tokens[1] + "!");
+                return;
+            }
+            session.out.println("Next available date for " + tokens[1] + " : " + date +
+                    " Number of doses : " + doses);
+        } catch (SQLException e) {
+            session.out.println("Error occurred when searching the next available date!");
             e.printStackTrace();
-        } finally {
-            cm.closeConnection();
         }
     }
 
-    private static void reserve(String[] tokens) {
+    private static void reserve(Session session, String[] tokens) {
         // TODO: Part 2
         // check 1: If no user is logged in
-        if (currentCaregiver == null && currentPatient == null) {
-            System.out.println("Please login first!");
+        if (session.currentCaregiver == null && session.currentPatient == null) {
+            session.out.println("Please login first!");
             return;
         }
         //check 2: check login as patient
-        if (currentCaregiver != null && currentPatient == null) {
-            System.out.println("Please logout caregiver and login as a patient!");
+        if (session.currentCaregiver != null && session.currentPatient == null) {
+            session.out.println("Please logout caregiver and login as a patient!");
             return;
         }
-        //check 3: check input format
-        if (tokens.length != 3) {
-            System.out.println("Please try again!");
+        //check 3: check input format, wait may be followed by the last date the patient would accept
+        if (tokens.length < 3 || tokens.length > 5 || (tokens.length > 3 && !tokens[3].equals("wait"))) {
+            session.out.println("Please try again!");
+            session.out.println("The correct input format is: reserve <date> <vaccine> [wait [<to>]]");
             return;
         }
         // check 4: Check if the date is future time and matches the real calendar
         try {
             LocalDate today = LocalDate.now();
-            System.out.println("The current time is: " + today);
-            System.out.println("The input time is:   " + LocalDate.parse(tokens[1]));
             LocalDate date = LocalDate.parse(tokens[1]);
+            if (session.format == OutputFormat.TEXT) {
+                session.out.println("The current time is: " + today);
+                session.out.println("The input time is:   " + date);
+            }
             if (date.isBefore(today)) {
-                System.out.println("Past results cannot be displayed!");
+                session.out.println("Past results cannot be displayed!");
                 return;
             }
         } catch (DateTimeParseException e) {
-            System.out.println("Invalid input date, please try again!");
-            System.out.println("The right format is: reserve year-month-day vaccine ");
+            session.out.println("Invalid input date, please try again!");
+            session.out.println("The right format is: reserve year-month-day vaccine ");
             return;
         }
-        String date = tokens[1];
+        Date date = Date.valueOf(tokens[1]);
         String vaccineName = tokens[2];
-        Random ran = new Random();
-        int appoID = ran.nextInt(99999999);
-        String patientName = currentPatient.getUsername();
-
-        // Get caregiver name
-        ArrayList<String> care_nameList = new ArrayList<>();
-        ConnectionManager cm1 = new ConnectionManager();
-        Connection con1 = cm1.createConnection();
+        String patientName = session.currentPatient.getUsername();
+        LocalDate waitUntil = null;
+        if (tokens.length > 3) {
+            // without the dispatcher nobody would ever be served from the waitlist
+            if (!waitlist.isEnabled()) {
+                session.out.println("The waitlist is disabled, please reserve without wait!");
+                return;
+            }
+            try {
+                waitUntil = tokens.length == 5 ? LocalDate.parse(tokens[4]) : date.toLocalDate();
+            } catch (DateTimeParseException e) {
+                session.out.println("Invalid wait date, please try again!");
+                return;
+            }
+            if (waitUntil.isBefore(date.toLocalDate())) {
+                session.out.println("The wait date cannot be before the reservation date!");
+                return;
+            }
+        }
+
         try {
-            PreparedStatement statement = con1.prepareStatement("SELECT A.Time, A.Username FROM Availabilities AS A WHERE A.Time = ? Order By A.Username");
-            statement.setString(1, date);
-            SimpleDateFormat sdf1 = new SimpleDateFormat("yyyy-mm-dd");
-            java.util.Date sqlDate = sdf1.parse(date);
-            ResultSet rs = statement.executeQuery();
-            if(!rs.next()) {
-                System.out.println("There are no caregivers available for this date!");
-            } else {
-                do{
-                    System.out.println("Time : " + rs.getString(1) +
-                            " Care_username : " + rs.getString(2));
-                    care_nameList.add(rs.getString(2));
-                } while (rs.next());
-            }
-            con1.close();
-        } catch (SQLException | ParseException e) {
-            System.out.println("Error occurred when getting caregiver's name!");
+            ReservationResult result = reservationService.reserve(date, vaccineName, patientName);
+            switch (result.getStatus()) {
+                case NO_SLOT:
+                    session.out.println("There are no caregivers available for this date!");
+                    break;
+                case NO_DOSE:
+                    session.out.println("Not enough available doses!");
+                    break;
+                default:
+                    session.out.println("Appointment ID: " + result.getAppointmentId() +
+                            ", Caregiver Username: " + result.getCaregiver());
+                    return;
+            }
+            if (waitUntil != null) {
+                int position = waitlist.enqueue(patientName, vaccineName, date.toLocalDate(), waitUntil);
+                session.out.println("Added to the waitlist for " + vaccineName + " from " + date + " to " +
+                        waitUntil + ", position " + position + "!");
+            }
+        } catch (SQLException e) {
+            session.out.println("Error occurred when reserving!");
             e.printStackTrace();
-        } finally {
-            cm1.closeConnection();
         }
+    }
+
+    private static void showWaitlist(Session session, String[] tokens) {
+        // waitlist
+        // check 1: the waitlist belongs to the logged in patient
+        if (session.currentPatient == null) {
+            session.out.println("Please login as a patient first!");
+            return;
+        }
+        if (tokens.length != 1) {
+            session.out.println("Please try again!");
+            return;
+        }
+        String patientName = session.currentPatient.getUsername();
+        List<Waitlist.Entry> booked = waitlist.takeBooked(patientName);
+        for (Waitlist.Entry entry : booked) {
+            session.out.println("Booked from the waitlist: Appointment ID: " + entry.getAppointmentId() +
+                    " Vaccine name: " + entry.getVaccine() + " Appointment date: " + entry.getDate() +
+                    " Caregiver name: " + entry.getCaregiver());
+        }
+        List<Waitlist.Entry> waiting = waitlist.waitingFor(patientName);
+        for (Waitlist.Entry entry : waiting) {
+            session.out.println("Waiting for " + entry.getVaccine() + " from " + entry.getFrom() + " to " +
+                    entry.getTo());
+        }
+        if (booked.isEmpty() && waiting.isEmpty()) {
+            session.out.println("You are not on the waitlist!");
+        }
+    }
 
-        // Show doses from Vaccine
-        ConnectionManager cm4 = new ConnectionManager();
-        Connection con4 = cm4.createConnection();
-        int dosesNum = 0;
+    private static void hold(Session session, String[] tokens) {
+        // hold <date> <vaccine>
+        // check 1: only a logged in patient can hold a slot
+        if (session.currentPatient == null) {
+            session.out.println("Please login as a patient first!");
+            return;
+        }
+        // check 2: the length for tokens need to be exactly 3 to include all information (with the operation name)
+        if (tokens.length != 3) {
+            session.out.println("Please try again!");
+            session.out.println("The correct input format is: hold <date> <vaccine>");
+            return;
+        }
+        // check 3: the date has to be a real date that is not in the past
+        LocalDate day;
         try {
-            PreparedStatement statement = con4.prepareStatement("SELECT V.Doses FROM Vaccines AS V WHERE V.Name = ?");
-            statement.setString(1, vaccineName);
-            ResultSet rs = statement.executeQuery();
-            if (rs.next()) {
-                dosesNum = rs.getInt(1);
+            day = LocalDate.parse(tokens[1]);
+        } catch (DateTimeParseException e) {
+            session.out.println("Invalid input date, please try again!");
+            session.out.println("The right format is: hold year-month-day vaccine");
+            return;
+        }
+        if (day.isBefore(LocalDate.now())) {
+            session.out.println("Past dates cannot be held!");
+            return;
+        }
+
+        try {
+            ReservationResult result = reservationService.hold(Date.valueOf(day), tokens[2],
+                    session.currentPatient.getUsername());
+            switch (result.getStatus()) {
+                case NO_SLOT:
+                    session.out.println("There are no caregivers available for this date!");
+                    break;
+                case NO_DOSE:
+                    session.out.println("Not enough available doses!");
+                    break;
+                default:
+                    session.out.println("Hold token: " + result.getHoldToken() +
+                            ", Caregiver Username: " + result.getCaregiver());
+                    session.out.println("Confirm within " + reservationService.getHoldTtl().getSeconds() +
+                            " seconds: confirm " + result.getHoldToken());
             }
-            con4.close();
         } catch (SQLException e) {
-            System.out.println("Error occurred when reserving!");
+            session.out.println("Error occurred when holding!");
             e.printStackTrace();
-        } finally {
-            cm4.closeConnection();
         }
-        //check 4: Check the numbers of doses
-        if (dosesNum == 0) {
-            System.out.println("Not enough available doses!");
+    }
+
+    private static void confirm(Session session, String[] tokens) {
+        // confirm <hold_token>
+        // check 1: only the patient who made the hold can confirm it
+        if (session.currentPatient == null) {
+            session.out.println("Please login as a patient first!");
+            return;
+        }
+        // check 2: the length for tokens need to be exactly 2 to include all information (with the operation name)
+        if (tokens.length != 2) {
+            session.out.println("Please try again!");
+            session.out.println("The correct input format is: confirm <hold_token>");
             return;
         }
 
-        // Add value into appointment table
-        if(!care_nameList.isEmpty()){
-            String care_name = care_nameList.get(0);
-            ConnectionManager cm2 = new ConnectionManager();
-            Connection con2 = cm2.createConnection();
-            try {
-                PreparedStatement statement = con2.prepareStatement("INSERT INTO Appointments VALUES (?, ?, ?, ?, ?)");
-                statement.setInt(1, appoID);
-                statement.setString(2, date);
-                statement.setString(3, patientName);
-                statement.setString(4, care_name);
-                statement.setString(5, vaccineName);
-                statement.executeUpdate();
-            } catch (SQLException e) {
-                System.out.println("Error occurred when adding value into appointment table!");
-                e.printStackTrace();
-            } finally {
-                cm2.closeConnection();
+        try {
+            ReservationResult result = reservationService.confirm(tokens[1], session.currentPatient.getUsername());
+            switch (result.getStatus()) {
+                case NO_HOLD:
+                    session.out.println("No such hold!");
+                    break;
+                case EXPIRED:
+                    session.out.println("The hold has expired, please hold again!");
+                    break;
+                default:
+                    session.out.println("Appointment ID: " + result.getAppointmentId() +
+                            ", Caregiver Username: " + result.getCaregiver());
             }
+        } catch (SQLException e) {
+            session.out.println("Error occurred when confirming!");
+            e.printStackTrace();
+        }
+    }
 
-            // Delete value into Availabilities table
-            ConnectionManager cm3 = new ConnectionManager();
-            Connection con3 = cm3.createConnection();
+    private static void uploadAvailability(Session session, String[] tokens) {
+        // upload_availability <date>
+        // upload_availability <from> <to> [MON,TUE,...]
+        // check 1: check if the current logged-in user is a caregiver
+        if (session.currentCaregiver == null) {
+            session.out.println("Please login as a caregiver first!");
+            return;
+        }
+        // check 2: either a single date, or a range of dates with optional weekdays
+        if (tokens.length < 2 || tokens.length > 4) {
+            session.out.println("Please try again!");
+            return;
+        }
+        if (tokens.length == 2) {
+            String date = tokens[1];
             try {
-                PreparedStatement statement = con3.prepareStatement("DELETE FROM Availabilities WHERE Time = ? AND Username = ?");
-                statement.setString(1, date);
-                statement.setString(2, care_name);
-                statement.executeUpdate();
+                Date d = Date.valueOf(date);
+                session.currentCaregiver.uploadAvailability(d);
+                session.out.println("Availability uploaded!");
+            } catch (IllegalArgumentException e) {
+                session.out.println("Please enter a valid date!");
             } catch (SQLException e) {
-                System.out.println("Error occurred when deleting value into Availabilities table!");
+                session.out.println("Error occurred when uploading availability");
                 e.printStackTrace();
-            } finally {
-                cm3.closeConnection();
             }
+            return;
+        }
+        List<Date> dates;
+        try {
+            dates = expandDates(tokens[1], tokens[2], tokens.length == 4 ? tokens[3] : null);
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            session.out.println("Please enter a valid date range!");
+            session.out.println("The right format is: upload_availability year-month-day year-month-day [MON,WED,FRI]");
+            return;
+        }
+        // check 3: keep a single upload to a sensible size
+        if (dates.size() > MAX_UPLOAD_DAYS) {
+            session.out.println("Please upload at most " + MAX_UPLOAD_DAYS + " days at a time!");
+            return;
+        }
+        try {
+            int added = session.currentCaregiver.uploadAvailability(dates);
+            session.out.println("Availability uploaded for " + added + " day(s), " +
+                    (dates.size() - added) + " already existed!");
+        } catch (SQLException e) {
+            session.out.println("Error occurred when uploading availability");
+            e.printStackTrace();
+        }
+    }
 
-            // update value into vaccine table
-            ConnectionManager cm5 = new ConnectionManager();
-            Connection con5 = cm5.createConnection();
-            try {
-                PreparedStatement statement = con5.prepareStatement("UPDATE Vaccines SET Doses = ? WHERE name = ?");
-                statement.setInt(1, dosesNum - 1);
-                statement.setString(2, vaccineName);
-                statement.executeUpdate();
-            } catch (SQLException e) {
-                System.out.println("Error occurred when updating value into vaccine table!");
-                e.printStackTrace();
-            } finally {
-                cm5.closeConnection();
+    // every date from..to inclusive, restricted to the given comma separated weekdays if any
+    private static List<Date> expandDates(String from, String to, String weekdays) {
+        LocalDate start = LocalDate.parse(from);
+        LocalDate end = LocalDate.parse(to);
+        if (end.isBefore(start)) {
+            throw new IllegalArgumentException("Range ends before it starts");
+        }
+        Set<DayOfWeek> days = EnumSet.allOf(DayOfWeek.class);
+        if (weekdays != null) {
+            days = EnumSet.noneOf(DayOfWeek.class);
+            for (String day : weekdays.split(",")) {
+                days.add(parseDayOfWeek(day));
             }
+        }
+        List<Date> dates = new ArrayList<>();
+        for (LocalDate d = start; !d.isAfter(end) && dates.size() <= MAX_UPLOAD_DAYS; d = d.plusDays(1)) {
+            if (days.contains(d.getDayOfWeek())) {
+                dates.add(Date.valueOf(d));
+            }
+        }
+        return dates;
+    }
 
-            // output
-            System.out.println("Appointment ID: " + appoID + ", Caregiver Username: " + care_name);
+    private static DayOfWeek parseDayOfWeek(String day) {
+        String prefix = day.trim().toUpperCase(Locale.ROOT);
+        if (prefix.length() >= 3) {
+            for (DayOfWeek d : DayOfWeek.values()) {
+                if (d.name().startsWith(prefix)) {
+                    return d;
+                }
+            }
         }
+        throw new IllegalArgumentException("Unknown day of week: " + day);
     }
 
-    private static void uploadAvailability(String[] tokens) {
-        // upload_availability <date>
-        // check 1: check if the current logged-in user is a caregiver
-        if (currentCaregiver == null) {
-            System.out.println("Please login as a caregiver first!");
+    private static void cancel(Session session, String[] tokens) {
+        // cancel <appointment_id>
+        // check 1: both patients and caregivers can cancel their own appointments
+        if (session.currentCaregiver == null && session.currentPatient == null) {
+            session.out.println("Please login first!");
             return;
         }
         // check 2: the length for tokens need to be exactly 2 to include all information (with the operation name)
         if (tokens.length != 2) {
-            System.out.println("Please try again!");
+            session.out.println("Please try again!");
             return;
         }
-        String date = tokens[1];
+        int appointmentId;
         try {
-            Date d = Date.valueOf(date);
-            currentCaregiver.uploadAvailability(d);
-            System.out.println("Availability uploaded!");
-        } catch (IllegalArgumentException e) {
-            System.out.println("Please enter a valid date!");
+            appointmentId = Integer.parseInt(tokens[1]);
+        } catch (NumberFormatException e) {
+            session.out.println("Please enter a valid appointment ID!");
+            return;
+        }
+        // patients and caregivers may share a name, so only the column of the logged in role is matched
+        boolean caregiver = session.currentCaregiver != null;
+        String username = caregiver
+                ? session.currentCaregiver.getUsername() : session.currentPatient.getUsername();
+        try {
+            if (reservationService.cancel(appointmentId, username, caregiver)) {
+                session.out.println("Appointment " + appointmentId + " cancelled!");
+            } else {
+                session.out.println("You have no appointment with ID " + appointmentId + "!");
+            }
         } catch (SQLException e) {
-            System.out.println("Error occurred when uploading availability");
+            session.out.println("Error occurred when cancelling");
             e.printStackTrace();
         }
     }
 
-    private static void cancel(String[] tokens) {
-        // TODO: Extra credit
-    }
-
-    private static void addDoses(String[] tokens) {
+    private static void addDoses(Session session, String[] tokens) {
         // add_doses <vaccine> <number>
         // check 1: check if the current logged-in user is a caregiver
-        if (currentCaregiver == null) {
-            System.out.println("Please login as a caregiver first!");
+        if (session.currentCaregiver == null) {
+            session.out.println("Please login as a caregiver first!");
             return;
         }
         // check 2: the length for tokens need to be exactly 3 to include all information (with the operation name)
         if (tokens.length != 3) {
-            System.out.println("Please try again!");
+            session.out.println("Please try again!");
             return;
         }
         String vaccineName = tokens[1];
@@ -552,7 +942,7 @@ public class Scheduler {
         try {
             vaccine = new Vaccine.VaccineGetter(vaccineName).get();
         } catch (SQLException e) {
-            System.out.println("Error occurred when adding doses");
+            session.out.println("Error occurred when adding doses");
             e.printStackTrace();
         }
         // check 3: if getter returns null, it means that we need to create the vaccine and insert it into the Vaccines
@@ -562,7 +952,7 @@ public class Scheduler {
                 vaccine = new Vaccine.VaccineBuilder(vaccineName, doses).build();
                 vaccine.saveToDB();
             } catch (SQLException e) {
-                System.out.println("Error occurred when adding doses");
+                session.out.println("Error occurred when adding doses");
                 e.printStackTrace();
             }
         } else {
@@ -570,97 +960,203 @@ public class Scheduler {
             try {
                 vaccine.increaseAvailableDoses(doses);
             } catch (SQLException e) {
-                System.out.println("Error occurred when adding doses");
+                session.out.println("Error occurred when adding doses");
                 e.printStackTrace();
             }
         }
-        System.out.println("Doses updated!");
+        session.out.println("Doses updated!");
     }
 
-    private static void showAppointments(String[] tokens) {
+    private static void showAppointments(Session session, String[] tokens) {
         // TODO: Part 2
-        // check 1: the length for tokens need to be exactly one
-        if (tokens.length != 1) {
-            System.out.println("Please try again!");
-            System.out.println("The correct input format is: show_appointments");
+        // show_appointments [after_id] [limit]
+        // check 1: at most an id to continue after and a page size
+        if (tokens.length > 3) {
+            session.out.println("Please try again!");
+            session.out.println("The correct input format is: show_appointments [after_id] [limit]");
             return;
         }
-        // check 2: the user should be login, output should be separately shown according to patient or caregiver
-        if (currentPatient != null) {
-            ConnectionManager cm = new ConnectionManager();
-            Connection con = cm.createConnection();
-
-            try {
-                PreparedStatement statement = con.prepareStatement("SELECT appoID, Vaccine, Time, Caregiver FROM Appointments");
-                ResultSet rs = statement.executeQuery();
-
-                if(!rs.next()) {
-                    System.out.println("There are no result for this patient!");
-                } else {
-                    do{
-                        System.out.println("Appointment ID: " + rs.getInt(1) +
-                                " Vaccine name: " + rs.getString(2)+
-                                " Appointment date: " + rs.getString(3) +
-                                " Caregiver name: " + rs.getString(4));
-                    } while (rs.next());
-                }
-                con.close();
-            } catch (SQLException e) {
-                System.out.println("Error occurred when showing patient appointments");
-                e.printStackTrace();
-            } finally {
-                cm.closeConnection();
+        int afterId = Integer.MIN_VALUE;
+        int limit = 0;
+        try {
+            if (tokens.length > 1) {
+                afterId = Integer.parseInt(tokens[1]);
             }
-
-        } else if (currentCaregiver != null) {
-            ConnectionManager cm = new ConnectionManager();
-            Connection con = cm.createConnection();
-
-            try {
-                PreparedStatement statement = con.prepareStatement("SELECT appoID, Vaccine, Time, Caregiver FROM Appointments");
-                ResultSet rs = statement.executeQuery();
-
-                if(!rs.next()) {
-                    System.out.println("There are no result for this caregiver!");
-                } else {
-                    do{
-                        System.out.println("Appointment ID: " + rs.getInt(1) +
-                                " Vaccine name: " + rs.getString(2) +
-                                " Appointment date: " + rs.getString(3) +
-                                " Patient name: " + rs.getString(4));
-                    } while (rs.next());
-                }
-                con.close();
-            } catch (SQLException e) {
-                System.out.println("Error occurred when showing caregiver appointments");
-                e.printStackTrace();
-            } finally {
-                cm.closeConnection();
+            if (tokens.length > 2) {
+                limit = Integer.parseInt(tokens[2]);
             }
-        } else {
-            System.out.println("Please log in first!");
+        } catch (NumberFormatException e) {
+            session.out.println("Please try again!");
+            session.out.println("The correct input format is: show_appointments [after_id] [limit]");
             return;
         }
+        if (limit < 0) {
+            session.out.println("The limit cannot be negative!");
+            return;
+        }
+        // check 2: the user should be login, output should be separately shown according to patient or caregiver
+        if (session.currentPatient != null) {
+            printAppointments(session, "Patient", session.currentPatient.getUsername(), "Caregiver",
+                    afterId, limit);
+        } else if (session.currentCaregiver != null) {
+            printAppointments(session, "Caregiver", session.currentCaregiver.getUsername(), "Patient",
+                    afterId, limit);
+        } else {
+            session.out.println("Please log in first!");
+        }
+    }
+
+    // prints one page of the user's appointments in id order, a limit of 0 means no limit
+    private static void printAppointments(Session session, String userColumn, String username, String otherColumn,
+                                          int afterId, int limit) {
+        boolean caregiver = userColumn.equals("Caregiver");
+        // rows are written as they are read instead of collecting the page first
+        try (TableWriter table = session.table()
+                .column("id", "Appointment ID: ")
+                .column("vaccine", "Vaccine name: ")
+                .column("date", "Appointment date: ")
+                .column(otherColumn.toLowerCase(), otherColumn + " name: ")) {
+            int[] lastId = {afterId};
+            int count = Repositories.appointments().forEachFor(username, caregiver, afterId, limit, appointment -> {
+                lastId[0] = appointment.getId();
+                table.row(appointment.getId(), appointment.getVaccine(), appointment.getDate(),
+                        caregiver ? appointment.getPatient() : appointment.getCaregiver());
+            });
+            if (count == 0) {
+                table.note("There are no result for this " + userColumn.toLowerCase() + "!");
+            } else if (count == limit) {
+                table.note("More appointments may follow: show_appointments " + lastId[0] + " " + limit);
+            }
+        } catch (SQLException e) {
+            session.out.println("Error occurred when showing " + userColumn.toLowerCase() + " appointments");
+            e.printStackTrace();
+        }
     }
 
-    private static void logout(String[] tokens) {
+    private static void logout(Session session, String[] tokens) {
         // TODO: Part 2
         // check 1: check if the current user is logged in
-        if (currentCaregiver == null && currentPatient == null) {
-            System.out.println("Please login first.");
+        if (session.currentCaregiver == null && session.currentPatient == null) {
+            session.out.println("Please login first.");
             return;
         }
         // check 2: check if the user print the right operation name
-        else if((tokens.length == 1 && currentCaregiver != null)
-        || (tokens.length == 1 && currentPatient != null)) {
-            System.out.println("Ready to log out...");
-            currentCaregiver = null;
-            currentPatient = null;
-            System.out.println("Successfully logged out!");
+        else if((tokens.length == 1 && session.currentCaregiver != null)
+        || (tokens.length == 1 && session.currentPatient != null)) {
+            session.out.println("Ready to log out...");
+            session.currentCaregiver = null;
+            session.currentPatient = null;
+            session.out.println("Successfully logged out!");
         }
         else{
-            System.out.println("Error occurred when logged out, please try again!");
+            session.out.println("Error occurred when logged out, please try again!");
             return;
         }
     }
+
+    private static void importFile(Session session, String[] tokens) {
+        // import <file>
+        // check 1: only caregivers can provision users and vaccines
+        if (session.currentCaregiver == null) {
+            session.out.println("Please login as a caregiver first!");
+            return;
+        }
+        // check 2: the length for tokens need to be exactly 2 to include all information (with the operation name)
+        if (tokens.length != 2) {
+            session.out.println("Please try again!");
+            session.out.println("The correct input format is: import <file>");
+            return;
+        }
+        BulkImporter importer = new BulkImporter(IMPORT_CHUNK_SIZE, session.out);
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(tokens[1]), StandardCharsets.UTF_8)) {
+            ImportStats stats = importer.importCsv(reader);
+            session.out.println(stats);
+        } catch (IOException e) {
+            session.out.println("Could not read " + tokens[1]);
+        } catch (SQLException e) {
+            session.out.println("Error occurred when importing, the current chunk was rolled back");
+            e.printStackTrace();
+        }
+    }
+
+    private static void reserveBatch(Session session, String[] tokens) {
+        // reserve_batch <file>
+        // check 1: only caregivers book on behalf of patients
+        if (session.currentCaregiver == null) {
+            session.out.println("Please login as a caregiver first!");
+            return;
+        }
+        // check 2: the length for tokens need to be exactly 2 to include all information (with the operation name)
+        if (tokens.length != 2) {
+            session.out.println("Please try again!");
+            session.out.println("The correct input format is: reserve_batch <file>");
+            return;
+        }
+        BatchReservation batch = new BatchReservation(scheduleSearch);
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(tokens[1]), StandardCharsets.UTF_8)) {
+            BatchReport report = batch.reserve(reader);
+            session.out.println(report);
+        } catch (IOException e) {
+            session.out.println("Could not read " + tokens[1]);
+        } catch (SQLException e) {
+            session.out.println("Error occurred when reserving the batch, nothing was booked");
+            e.printStackTrace();
+        }
+    }
+
+    private static void format(Session session, String[] tokens) {
+        // format [text | tsv | json]
+        if (tokens.length == 1) {
+            session.out.println("Output format: " + session.format.name().toLowerCase());
+            return;
+        }
+        OutputFormat format = tokens.length == 2 ? OutputFormat.parse(tokens[1]) : null;
+        if (format == null) {
+            session.out.println("Please try again!");
+            session.out.println("The correct input format is: format [text | tsv | json]");
+            return;
+        }
+        session.format = format;
+        session.out.println("Output format set to " + tokens[1].toLowerCase() + "!");
+    }
+
+    private static void poolStats(Session session, String[] tokens) {
+        // pool_stats
+        if (tokens.length != 1) {
+            session.out.println("Please try again!");
+            return;
+        }
+        if (!Repositories.get().isJdbc()) {
+            session.out.println("The memory backend has no connection pool!");
+            return;
+        }
+        session.out.println(ConnectionManager.getPoolStats());
+    }
+
+    private static void stats(Session session, String[] tokens) {
+        // stats [reset | sql | cache]
+        if (tokens.length == 2 && tokens[1].equals("reset")) {
+            commandMetrics.clear();
+            SqlTracer.getInstance().clear();
+            session.out.println("Statistics reset!");
+            return;
+        }
+        if (tokens.length == 2 && tokens[1].equals("sql")) {
+            session.out.print(SqlTracer.getInstance().summary(SQL_SUMMARY_SIZE));
+            return;
+        }
+        if (tokens.length == 2 && tokens[1].equals("cache")) {
+            session.out.print(ReadThroughCache.report());
+            return;
+        }
+        if (tokens.length != 1) {
+            session.out.println("Please try again!");
+            session.out.println("The correct input format is: stats [reset | sql | cache]");
+            return;
+        }
+        session.out.print(commandMetrics.report());
+        if (Repositories.get().isJdbc()) {
+            session.out.println(ConnectionManager.getPoolStats());
+        }
+    }
 }
@@ -0,0 +1,74 @@
+package scheduler;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Serves many clients from one process. Every connection on the local socket gets its own Session and runs
+ * the same command handlers as the console, one thread per connection.
+ */
+public class SchedulerServer {
+
+    private final int port;
+    private final ExecutorService sessions = newSessionExecutor();
+    private final AtomicInteger openSessions = new AtomicInteger();
+
+    public SchedulerServer(int port) {
+        this.port = port;
+    }
+
+    // virtual threads make a thread per terminal cheap, fall back to platform threads on older runtimes
+    private static ExecutorService newSessionExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(r -> {
+                Thread t = new Thread(r, "scheduler-session");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    /**
+     * Accepts clients on the loopback interface until the process is stopped.
+     */
+    public void serve() throws IOException {
+        try (ServerSocket server = new ServerSocket(port, 0, InetAddress.getLoopbackAddress())) {
+            System.out.println("Scheduler server listening on " + server.getLocalSocketAddress());
+            while (!server.isClosed()) {
+                Socket socket = server.accept();
+                sessions.execute(() -> handle(socket));
+            }
+        } finally {
+            sessions.shutdownNow();
+        }
+    }
+
+    private void handle(Socket socket) {
+        openSessions.incrementAndGet();
+        try (Socket s = socket;
+             BufferedReader in = new BufferedReader(
+                     new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+             PrintStream out = new PrintStream(s.getOutputStream(), true, StandardCharsets.UTF_8)) {
+            Scheduler.runSession(new Session(out), in, false);
+        } catch (IOException e) {
+            // the client went away, nothing else to clean up
+        } finally {
+            openSessions.decrementAndGet();
+        }
+    }
+
+    public int getOpenSessions() {
+        return openSessions.get();
+    }
+}
@@ -0,0 +1,34 @@
+package scheduler;
+
+import scheduler.model.Caregiver;
+import scheduler.model.Patient;
+import scheduler.util.OutputFormat;
+import scheduler.util.TableWriter;
+
+import java.io.PrintStream;
+
+/**
+ * The state of one connected client: who is logged in and where and how command output goes.
+ */
+class Session {
+
+    // objects to keep track of the currently logged-in user
+    // Note: it is always true that at most one of currentCaregiver and currentPatient is not null
+    //       since only one user can be logged-in at a time in a session
+    Caregiver currentCaregiver = null;
+    Patient currentPatient = null;
+
+    final PrintStream out;
+    OutputFormat format = OutputFormat.configured();
+    // reused by every listing of the session, a session runs one command at a time
+    private final StringBuilder buffer = new StringBuilder(TableWriter.CHUNK_SIZE * 2);
+
+    Session(PrintStream out) {
+        this.out = out;
+    }
+
+    // starts a listing in the session's format
+    TableWriter table() {
+        return new TableWriter(out, format, buffer);
+    }
+}
@@ -1,41 +1,101 @@
 package scheduler.db;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 
 public class ConnectionManager {
 
-    private final String driverName = "com.microsoft.sqlserver.jdbc.SQLServerDriver";
-    private final String connectionUrl = "jdbc:sqlserver://" + System.getenv("Server") +
-            ".database.windows.net:1433;database=" + System.getenv("DBName");
-    private final String userName = System.getenv("UserID");
-    private final String userPass = System.getenv("Password");
+    private static final String driverName = "com.microsoft.sqlserver.jdbc.SQLServerDriver";
+    // JdbcUrl points the scheduler at another database, e.g. an embedded one for benchmarks
+    private static final String jdbcUrl = setting("JdbcUrl");
+    private static final String connectionUrl = jdbcUrl != null ? jdbcUrl : "jdbc:sqlserver://" +
+            setting("Server") + ".database.windows.net:1433;database=" + setting("DBName");
+    private static final String userName = setting("UserID");
+    private static final String userPass = setting("Password");
+
+    // pool settings, can be overridden through environment variables
+    private static final int poolMaxSize = envInt("PoolMaxSize", 10);
+    private static final long poolWaitTimeout = envInt("PoolWaitTimeoutMs", 5000);
+    private static final long poolIdleTimeout = envInt("PoolIdleTimeoutMs", 5 * 60 * 1000);
+    private static final long poolMaxLifetime = envInt("PoolMaxLifetimeMs", 30 * 60 * 1000);
+    private static final int poolValidationTimeout = envInt("PoolValidationTimeoutSec", 2);
+
+    private static volatile ConnectionPool pool = null;
 
     private Connection con = null;
 
     public ConnectionManager() {
-        try {
-            Class.forName(driverName);
-        } catch (ClassNotFoundException e) {
-            System.out.println(e.toString());
+        getPool();
+    }
+
+    // the pool is shared by every ConnectionManager and created on first use
+    private static ConnectionPool getPool() {
+        if (pool == null) {
+            synchronized (ConnectionManager.class) {
+                if (pool == null) {
+                    // other drivers register themselves through the service loader
+                    if (jdbcUrl == null) {
+                        try {
+                            Class.forName(driverName);
+                        } catch (ClassNotFoundException e) {
+                            System.out.println(e.toString());
+                        }
+                    }
+                    pool = new ConnectionPool(connectionUrl, userName, userPass, poolMaxSize, poolWaitTimeout,
+                            poolIdleTimeout, poolMaxLifetime, poolValidationTimeout);
+                }
+            }
+        }
+        return pool;
+    }
+
+    public static PoolStats getPoolStats() {
+        return getPool().getStats();
+    }
+
+    public static void shutdown() {
+        if (pool != null) {
+            pool.shutdown();
         }
     }
 
     public Connection createConnection() {
         try {
-            con = DriverManager.getConnection(connectionUrl, userName, userPass);
+            con = getPool().borrow();
         } catch (SQLException e) {
             e.printStackTrace();
         }
         return con;
     }
 
+    // returns the connection to the pool, calling this more than once is harmless
     public void closeConnection() {
+        if (this.con == null) {
+            return;
+        }
         try {
             this.con.close();
         } catch (SQLException e) {
             e.printStackTrace();
         }
     }
+
+    // a system property of the same name wins over the environment variable
+    private static String setting(String name) {
+        String value = System.getProperty(name);
+        return value != null ? value : System.getenv(name);
+    }
+
+    private static int envInt(String name, int defaultValue) {
+        String value = setting(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            System.out.println("Ignoring invalid value for " + name + ": " + value);
+            return defaultValue;
+        }
+    }
 }
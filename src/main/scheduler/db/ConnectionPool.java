@@ -0,0 +1,296 @@
+package scheduler.db;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded pool of physical JDBC connections.
+ *
+ * Callers borrow a connection with {@link #borrow()} and give it back by calling close() on it,
+ * the returned object is a thin proxy so the physical connection stays open for the next caller.
+ * Idle connections are validated on borrow, evicted after sitting idle for too long and retired
+ * once they reach their maximum lifetime.
+ */
+public class ConnectionPool {
+
+    private final String url;
+    private final String userName;
+    private final String userPass;
+
+    private final int maxSize;
+    private final long waitTimeoutMillis;
+    private final long idleTimeoutMillis;
+    private final long maxLifetimeMillis;
+    private final int validationTimeoutSeconds;
+
+    // most recently returned connection is at the head, so hot connections get reused first
+    private final LinkedBlockingDeque<PhysicalConnection> idle = new LinkedBlockingDeque<>();
+    private final Semaphore permits;
+    private final ScheduledExecutorService evictor;
+
+    // statistics
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicLong borrows = new AtomicLong();
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong destroyed = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    public ConnectionPool(String url, String userName, String userPass, int maxSize, long waitTimeoutMillis,
+                          long idleTimeoutMillis, long maxLifetimeMillis, int validationTimeoutSeconds) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Pool size must be positive!");
+        }
+        this.url = url;
+        this.userName = userName;
+        this.userPass = userPass;
+        this.maxSize = maxSize;
+        this.waitTimeoutMillis = waitTimeoutMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.maxLifetimeMillis = maxLifetimeMillis;
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+        this.permits = new Semaphore(maxSize, true);
+
+        this.evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "connection-pool-evictor");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1000, Math.min(idleTimeoutMillis, maxLifetimeMillis) / 2);
+        evictor.scheduleWithFixedDelay(this::evict, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrows a connection, waiting up to the configured wait timeout if the pool is exhausted.
+     */
+    public Connection borrow() throws SQLException {
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(waitTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                timeouts.incrementAndGet();
+                throw new SQLException("Timed out after " + waitTimeoutMillis + "ms waiting for a connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection", e);
+        }
+        recordWait(System.nanoTime() - start);
+
+        try {
+            PhysicalConnection physical = takeIdle();
+            if (physical == null) {
+                physical = open();
+            }
+            active.incrementAndGet();
+            borrows.incrementAndGet();
+            JdbcStats.connectionBorrowed();
+            return physical.lease();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    // pops idle connections until one passes validation, returns null if none is left
+    private PhysicalConnection takeIdle() {
+        PhysicalConnection physical;
+        while ((physical = idle.pollFirst()) != null) {
+            if (physical.isExpired() || !physical.isValid()) {
+                destroy(physical);
+                continue;
+            }
+            return physical;
+        }
+        return null;
+    }
+
+    private PhysicalConnection open() throws SQLException {
+        Connection con = DriverManager.getConnection(url, userName, userPass);
+        created.incrementAndGet();
+        return new PhysicalConnection(con);
+    }
+
+    private void release(PhysicalConnection physical) {
+        active.decrementAndGet();
+        try {
+            if (!physical.reset() || physical.isExpired()) {
+                destroy(physical);
+            } else {
+                physical.lastUsed = System.currentTimeMillis();
+                idle.offerFirst(physical);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void destroy(PhysicalConnection physical) {
+        destroyed.incrementAndGet();
+        try {
+            physical.con.close();
+        } catch (SQLException e) {
+            // the connection is being thrown away anyway
+        }
+    }
+
+    private void recordWait(long nanos) {
+        totalWaitNanos.addAndGet(nanos);
+        long max;
+        do {
+            max = maxWaitNanos.get();
+        } while (nanos > max && !maxWaitNanos.compareAndSet(max, nanos));
+    }
+
+    // closes idle connections that have been unused for too long or have outlived their lifetime
+    void evict() {
+        long now = System.currentTimeMillis();
+        Iterator<PhysicalConnection> it = idle.iterator();
+        while (it.hasNext()) {
+            PhysicalConnection physical = it.next();
+            if (physical.isExpired() || now - physical.lastUsed > idleTimeoutMillis) {
+                if (idle.remove(physical)) {
+                    destroy(physical);
+                }
+            }
+        }
+    }
+
+    public PoolStats getStats() {
+        return new PoolStats(maxSize, active.get(), idle.size(), permits.getQueueLength(), borrows.get(),
+                created.get(), destroyed.get(), timeouts.get(), totalWaitNanos.get(), maxWaitNanos.get());
+    }
+
+    /**
+     * Closes every idle connection and stops the evictor. Borrowed connections are closed as they are returned.
+     */
+    public void shutdown() {
+        evictor.shutdownNow();
+        PhysicalConnection physical;
+        while ((physical = idle.pollFirst()) != null) {
+            destroy(physical);
+        }
+    }
+
+    private class PhysicalConnection {
+        private final Connection con;
+        private final long createdAt = System.currentTimeMillis();
+        private volatile long lastUsed = createdAt;
+
+        PhysicalConnection(Connection con) {
+            this.con = con;
+        }
+
+        boolean isExpired() {
+            return System.currentTimeMillis() - createdAt > maxLifetimeMillis;
+        }
+
+        boolean isValid() {
+            try {
+                return con.isValid(validationTimeoutSeconds);
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        // undo whatever the previous borrower left behind, returns false if the connection is unusable
+        boolean reset() {
+            try {
+                if (con.isClosed()) {
+                    return false;
+                }
+                if (!con.getAutoCommit()) {
+                    con.rollback();
+                    con.setAutoCommit(true);
+                }
+                return true;
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        Connection lease() {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, new Lease(this));
+        }
+    }
+
+    // a single borrow of a physical connection, close() hands it back to the pool exactly once
+    private class Lease implements InvocationHandler {
+        private final PhysicalConnection physical;
+        private boolean returned = false;
+        // statements the borrower forgot to close would otherwise stay open on the physical connection
+        private final List<Statement> statements = new ArrayList<>();
+
+        Lease(PhysicalConnection physical) {
+            this.physical = physical;
+        }
+
+        private void closeStatements() {
+            for (Statement statement : statements) {
+                try {
+                    statement.close();
+                } catch (SQLException e) {
+                    // the statement is being thrown away anyway
+                }
+            }
+            statements.clear();
+        }
+
+        @Override
+        public synchronized Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!returned) {
+                        returned = true;
+                        closeStatements();
+                        release(physical);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned || physical.con.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + physical.con + "]";
+                default:
+                    if (returned) {
+                        throw new SQLException("Connection has already been returned to the pool");
+                    }
+                    Object result;
+                    try {
+                        result = method.invoke(physical.con, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                    if (result instanceof Statement) {
+                        // prepareStatement(sql, ...) and prepareCall(sql, ...) take the SQL first
+                        String sql = args != null && args.length > 0 && args[0] instanceof String
+                                ? (String) args[0] : null;
+                        Statement statement = TracingStatement.wrap((Statement) result, sql);
+                        statements.add(statement);
+                        return statement;
+                    }
+                    return result;
+            }
+        }
+    }
+}
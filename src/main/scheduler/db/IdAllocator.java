@@ -0,0 +1,144 @@
+package scheduler.db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hands out unique ids for a table using the hi/lo scheme.
+ *
+ * A block of ids is leased from the IdBlocks table in a short transaction, the ids in the block are
+ * then handed out from memory. Every process leases disjoint blocks, so ids never collide even when
+ * several schedulers share the same database. Ids of a block that is not used up before shutdown are
+ * simply skipped.
+ */
+public class IdAllocator {
+
+    private static final String BUMP_BLOCK = "UPDATE IdBlocks SET NextValue = NextValue + ? WHERE Name = ?";
+    private static final String READ_BLOCK = "SELECT NextValue FROM IdBlocks WHERE Name = ?";
+    private static final String INSERT_BLOCK = "INSERT INTO IdBlocks VALUES (?, ?)";
+
+    private final String name;
+    private final String seedQuery;
+    private final int blockSize;
+
+    private volatile Block block = null;
+
+    /**
+     * @param name      the key of the sequence in IdBlocks
+     * @param seedQuery a query returning the largest id already in use, used the first time the sequence is created
+     * @param blockSize how many ids to lease per round trip
+     */
+    public IdAllocator(String name, String seedQuery, int blockSize) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("Block size must be positive!");
+        }
+        this.name = name;
+        this.seedQuery = seedQuery;
+        this.blockSize = blockSize;
+    }
+
+    public long nextId() throws SQLException {
+        while (true) {
+            Block current = block;
+            if (current != null) {
+                long id = current.next.getAndIncrement();
+                if (id < current.limit) {
+                    return id;
+                }
+            }
+            synchronized (this) {
+                // another thread may have refilled while we were waiting for the lock
+                if (block == current) {
+                    block = lease();
+                }
+            }
+        }
+    }
+
+    public int nextIntId() throws SQLException {
+        long id = nextId();
+        if (id > Integer.MAX_VALUE) {
+            throw new SQLException("Id sequence " + name + " exhausted the INT range");
+        }
+        return (int) id;
+    }
+
+    private Block lease() throws SQLException {
+        ConnectionManager cm = new ConnectionManager();
+        Connection con = cm.createConnection();
+        if (con == null) {
+            throw new SQLException("Could not obtain a connection");
+        }
+        try {
+            con.setAutoCommit(false);
+            try {
+                if (!bump(con)) {
+                    create(con);
+                }
+                long limit = read(con);
+                con.commit();
+                return new Block(limit - blockSize, limit);
+            } catch (SQLException e) {
+                con.rollback();
+                throw e;
+            }
+        } finally {
+            cm.closeConnection();
+        }
+    }
+
+    private boolean bump(Connection con) throws SQLException {
+        try (PreparedStatement statement = con.prepareStatement(BUMP_BLOCK)) {
+            statement.setInt(1, blockSize);
+            statement.setString(2, name);
+            return statement.executeUpdate() == 1;
+        }
+    }
+
+    // first lease ever: start after the largest id already in the table so we never reuse an old id
+    private void create(Connection con) throws SQLException {
+        long start = 1;
+        try (PreparedStatement statement = con.prepareStatement(seedQuery);
+             ResultSet rs = statement.executeQuery()) {
+            if (rs.next()) {
+                start = rs.getLong(1) + 1;
+            }
+        }
+        try (PreparedStatement statement = con.prepareStatement(INSERT_BLOCK)) {
+            statement.setString(1, name);
+            statement.setLong(2, start + blockSize);
+            statement.executeUpdate();
+        } catch (SQLException e) {
+            // someone else created the sequence concurrently, take a block from theirs instead
+            con.rollback();
+            if (!bump(con)) {
+                throw e;
+            }
+        }
+    }
+
+    private long read(Connection con) throws SQLException {
+        try (PreparedStatement statement = con.prepareStatement(READ_BLOCK)) {
+            statement.setString(1, name);
+            try (ResultSet rs = statement.executeQuery()) {
+                if (!rs.next()) {
+                    throw new SQLException("Id sequence " + name + " does not exist");
+                }
+                return rs.getLong(1);
+            }
+        }
+    }
+
+    private static class Block {
+        private final AtomicLong next;
+        private final long limit;
+
+        Block(long start, long limit) {
+            this.next = new AtomicLong(start);
+            this.limit = limit;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package scheduler.db;
+
+/**
+ * Per-thread counters of the JDBC work done by the current command: connections borrowed, statements
+ * executed and the time spent executing them. The pool updates them, the command layer resets and reads them.
+ */
+public class JdbcStats {
+
+    private static final ThreadLocal<JdbcStats> current = ThreadLocal.withInitial(JdbcStats::new);
+
+    private long connections = 0;
+    private long statements = 0;
+    private long nanos = 0;
+
+    private JdbcStats() {
+    }
+
+    /**
+     * Returns the counters of this thread since the last reset and starts counting from zero again.
+     */
+    public static JdbcStats reset() {
+        JdbcStats stats = current.get();
+        JdbcStats snapshot = new JdbcStats();
+        snapshot.connections = stats.connections;
+        snapshot.statements = stats.statements;
+        snapshot.nanos = stats.nanos;
+        stats.connections = 0;
+        stats.statements = 0;
+        stats.nanos = 0;
+        return snapshot;
+    }
+
+    static void connectionBorrowed() {
+        current.get().connections++;
+    }
+
+    static void statementExecuted(long nanos) {
+        JdbcStats stats = current.get();
+        stats.statements++;
+        stats.nanos += nanos;
+    }
+
+    // Getters
+    public long getConnections() {
+        return connections;
+    }
+
+    public long getStatements() {
+        return statements;
+    }
+
+    public long getNanos() {
+        return nanos;
+    }
+}
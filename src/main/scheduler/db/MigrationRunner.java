@@ -0,0 +1,191 @@
+package scheduler.db;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Brings the database schema up to date at startup.
+ *
+ * create.sql is the baseline. Every later change is a script named V{version}__{description}.sql in the
+ * migrations resource folder and listed in migrations/index. Scripts are applied in version order, each in
+ * its own transaction together with its row in SchemaVersions, so a failed script leaves nothing behind and
+ * two schedulers starting at the same time cannot both apply the same version.
+ */
+public class MigrationRunner {
+
+    private static final Pattern SCRIPT_NAME = Pattern.compile("V(\\d+)__(\\w+)\\.sql");
+    // IntelliJ copies the resources folder as is, Maven copies its contents
+    private static final String[] RESOURCE_ROOTS = {"/migrations/", "/resources/migrations/"};
+
+    private static final String CREATE_VERSIONS = "CREATE TABLE SchemaVersions (Version INT, " +
+            "Description varchar(255), AppliedOn datetime, PRIMARY KEY (Version))";
+    private static final String SELECT_VERSIONS = "SELECT Version FROM SchemaVersions";
+    private static final String INSERT_VERSION = "INSERT INTO SchemaVersions VALUES (?, ?, ?)";
+
+    /**
+     * Applies every migration that has not been applied yet and returns how many were applied.
+     */
+    public int migrate() throws SQLException, IOException {
+        String root = findRoot();
+        if (root == null) {
+            return 0;
+        }
+        TreeMap<Integer, String> scripts = listScripts(root);
+        Set<Integer> applied = appliedVersions();
+        int count = 0;
+        for (Integer version : scripts.keySet()) {
+            if (applied.contains(version)) {
+                continue;
+            }
+            String script = scripts.get(version);
+            if (apply(version, script, read(root + script))) {
+                System.out.println("Applied migration " + script);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static String findRoot() {
+        for (String root : RESOURCE_ROOTS) {
+            if (MigrationRunner.class.getResource(root + "index") != null) {
+                return root;
+            }
+        }
+        return null;
+    }
+
+    private static TreeMap<Integer, String> listScripts(String root) throws IOException {
+        TreeMap<Integer, String> scripts = new TreeMap<>();
+        for (String line : read(root + "index").split("\\R")) {
+            String name = line.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            Matcher m = SCRIPT_NAME.matcher(name);
+            if (!m.matches()) {
+                throw new IOException("Invalid migration name: " + name);
+            }
+            if (scripts.put(Integer.parseInt(m.group(1)), name) != null) {
+                throw new IOException("Duplicate migration version: " + name);
+            }
+        }
+        return scripts;
+    }
+
+    private static String read(String resource) throws IOException {
+        try (InputStream in = MigrationRunner.class.getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IOException("Missing migration resource " + resource);
+            }
+            StringBuilder sb = new StringBuilder();
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                sb.append(line).append('\n');
+            }
+            return sb.toString();
+        }
+    }
+
+    private Set<Integer> appliedVersions() throws SQLException {
+        ConnectionManager cm = new ConnectionManager();
+        Connection con = cm.createConnection();
+        if (con == null) {
+            throw new SQLException("Could not obtain a connection");
+        }
+        try {
+            Set<Integer> versions = new HashSet<>();
+            try (Statement statement = con.createStatement();
+                 ResultSet rs = statement.executeQuery(SELECT_VERSIONS)) {
+                while (rs.next()) {
+                    versions.add(rs.getInt(1));
+                }
+            } catch (SQLException e) {
+                // first run against this database
+                try (Statement statement = con.createStatement()) {
+                    statement.executeUpdate(CREATE_VERSIONS);
+                }
+            }
+            return versions;
+        } finally {
+            cm.closeConnection();
+        }
+    }
+
+    // returns false if another process applied the same version first
+    private boolean apply(int version, String name, String script) throws SQLException {
+        ConnectionManager cm = new ConnectionManager();
+        Connection con = cm.createConnection();
+        if (con == null) {
+            throw new SQLException("Could not obtain a connection");
+        }
+        try {
+            con.setAutoCommit(false);
+            // claim the version first, a concurrent runner blocks here and then fails on the primary key
+            try (PreparedStatement statement = con.prepareStatement(INSERT_VERSION)) {
+                statement.setInt(1, version);
+                statement.setString(2, name);
+                statement.setTimestamp(3, new Timestamp(System.currentTimeMillis()));
+                statement.executeUpdate();
+            } catch (SQLException e) {
+                con.rollback();
+                if (appliedVersions().contains(version)) {
+                    return false;
+                }
+                throw e;
+            }
+            try (Statement statement = con.createStatement()) {
+                for (String sql : split(script)) {
+                    statement.execute(sql);
+                }
+            }
+            con.commit();
+            return true;
+        } catch (SQLException e) {
+            con.rollback();
+            throw new SQLException("Migration " + name + " failed", e);
+        } finally {
+            cm.closeConnection();
+        }
+    }
+
+    // statements end with a semicolon at the end of a line, -- starts a comment line
+    private static List<String> split(String script) {
+        List<String> statements = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        for (String line : script.split("\\R")) {
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("--")) {
+                continue;
+            }
+            if (trimmed.endsWith(";")) {
+                current.append(trimmed, 0, trimmed.length() - 1);
+                statements.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(trimmed).append('\n');
+            }
+        }
+        if (current.length() > 0) {
+            statements.add(current.toString());
+        }
+        return statements;
+    }
+}
@@ -0,0 +1,80 @@
+package scheduler.db;
+
+/**
+ * A point-in-time snapshot of the connection pool counters.
+ */
+public class PoolStats {
+    private final int maxSize;
+    private final int active;
+    private final int idle;
+    private final int waiting;
+    private final long borrows;
+    private final long created;
+    private final long destroyed;
+    private final long timeouts;
+    private final long totalWaitNanos;
+    private final long maxWaitNanos;
+
+    PoolStats(int maxSize, int active, int idle, int waiting, long borrows, long created, long destroyed,
+              long timeouts, long totalWaitNanos, long maxWaitNanos) {
+        this.maxSize = maxSize;
+        this.active = active;
+        this.idle = idle;
+        this.waiting = waiting;
+        this.borrows = borrows;
+        this.created = created;
+        this.destroyed = destroyed;
+        this.timeouts = timeouts;
+        this.totalWaitNanos = totalWaitNanos;
+        this.maxWaitNanos = maxWaitNanos;
+    }
+
+    // Getters
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int getActive() {
+        return active;
+    }
+
+    public int getIdle() {
+        return idle;
+    }
+
+    public int getWaiting() {
+        return waiting;
+    }
+
+    public long getBorrows() {
+        return borrows;
+    }
+
+    public long getCreated() {
+        return created;
+    }
+
+    public long getDestroyed() {
+        return destroyed;
+    }
+
+    public long getTimeouts() {
+        return timeouts;
+    }
+
+    public double getAverageWaitMillis() {
+        return borrows == 0 ? 0 : totalWaitNanos / 1e6 / borrows;
+    }
+
+    public double getMaxWaitMillis() {
+        return maxWaitNanos / 1e6;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("PoolStats{max=%d, active=%d, idle=%d, waiting=%d, borrows=%d, created=%d, " +
+                        "destroyed=%d, timeouts=%d, avgWait=%.3fms, maxWait=%.3fms}",
+                maxSize, active, idle, waiting, borrows, created, destroyed, timeouts,
+                getAverageWaitMillis(), getMaxWaitMillis());
+    }
+}
@@ -0,0 +1,146 @@
+package scheduler.db;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects every statement executed through the pool.
+ *
+ * Time and row counts are summed up per SQL text, and statements slower than the threshold are appended to
+ * the slow query log with their bound parameters. Binary parameters are salts and password hashes in this
+ * schema, so they are never written out.
+ *
+ * Configured with SlowQueryMs (default 200) and SlowQueryLog (default slow-queries.log), as system properties
+ * or environment variables.
+ */
+public class SqlTracer {
+
+    private static final int MAX_DISTINCT_STATEMENTS = 1000;
+    private static final String OTHER = "<other statements>";
+
+    private static final SqlTracer instance = new SqlTracer(
+            Long.parseLong(setting("SlowQueryMs", "200")), setting("SlowQueryLog", "slow-queries.log"));
+
+    private final long thresholdNanos;
+    private final String logFile;
+    private BufferedWriter log = null;
+    private final Map<String, Summary> summaries = new ConcurrentHashMap<>();
+
+    private SqlTracer(long thresholdMillis, String logFile) {
+        this.thresholdNanos = thresholdMillis * 1_000_000;
+        this.logFile = logFile;
+    }
+
+    public static SqlTracer getInstance() {
+        return instance;
+    }
+
+    private static String setting(String name, String defaultValue) {
+        String value = System.getProperty(name);
+        if (value == null) {
+            value = System.getenv(name);
+        }
+        return value != null ? value : defaultValue;
+    }
+
+    void record(String sql, Map<Integer, Object> parameters, long nanos, long rows) {
+        String key = sql == null ? OTHER : sql;
+        Summary summary = summaries.get(key);
+        if (summary == null) {
+            // statements built by string concatenation must not grow the map forever
+            if (summaries.size() >= MAX_DISTINCT_STATEMENTS) {
+                key = OTHER;
+            }
+            summary = summaries.computeIfAbsent(key, k -> new Summary());
+        }
+        summary.add(nanos, rows);
+        if (nanos >= thresholdNanos) {
+            writeSlow(sql, parameters, nanos, rows);
+        }
+    }
+
+    private synchronized void writeSlow(String sql, Map<Integer, Object> parameters, long nanos, long rows) {
+        try {
+            if (log == null) {
+                log = Files.newBufferedWriter(Paths.get(logFile), StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            }
+            log.write(String.format("%s %.3fms rows=%d %s%s", LocalDateTime.now(), nanos / 1e6, rows,
+                    sql, formatParameters(parameters)));
+            log.newLine();
+            log.flush();
+        } catch (IOException e) {
+            System.out.println("Error occurred when writing the slow query log");
+        }
+    }
+
+    private static String formatParameters(Map<Integer, Object> parameters) {
+        if (parameters == null) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder(" [");
+        for (Map.Entry<Integer, Object> entry : parameters.entrySet()) {
+            if (sb.length() > 2) {
+                sb.append(", ");
+            }
+            Object value = entry.getValue();
+            sb.append(entry.getKey()).append('=');
+            sb.append(value instanceof byte[] ? "<redacted>" : String.valueOf(value));
+        }
+        return sb.append(']').toString();
+    }
+
+    public void clear() {
+        summaries.clear();
+    }
+
+    /**
+     * Returns the {@code limit} statements with the most total time, slowest first.
+     */
+    public String summary(int limit) {
+        List<Map.Entry<String, Summary>> entries = new ArrayList<>(summaries.entrySet());
+        entries.sort((a, b) -> Long.compare(b.getValue().nanos.sum(), a.getValue().nanos.sum()));
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%8s %10s %9s %9s %9s  %s%n", "count", "total(ms)", "mean(ms)", "max(ms)",
+                "rows/op", "sql"));
+        for (Map.Entry<String, Summary> entry : entries.subList(0, Math.min(limit, entries.size()))) {
+            Summary s = entry.getValue();
+            long count = s.count.sum();
+            if (count == 0) {
+                continue;
+            }
+            sb.append(String.format("%8d %10.3f %9.3f %9.3f %9.2f  %s%n", count, s.nanos.sum() / 1e6,
+                    s.nanos.sum() / 1e6 / count, s.maxNanos.get() / 1e6, (double) s.rows.sum() / count,
+                    entry.getKey()));
+        }
+        return sb.toString();
+    }
+
+    private static class Summary {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        void add(long elapsed, long rowCount) {
+            count.increment();
+            nanos.add(elapsed);
+            rows.add(rowCount);
+            long max;
+            do {
+                max = maxNanos.get();
+            } while (elapsed > max && !maxNanos.compareAndSet(max, elapsed));
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package scheduler.db;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.TreeMap;
+
+/**
+ * Wraps a statement handed out by the pool. Every execution is timed and counted in {@link JdbcStats}, and
+ * reported to the {@link SqlTracer} together with its SQL text, bound parameters and row count.
+ *
+ * The row count of a query is only known once its result set has been read, so a query is reported when its
+ * result set or statement is closed, or when the statement is executed again.
+ */
+class TracingStatement implements InvocationHandler {
+
+    private final Statement statement;
+    private final String sql;
+    // parameters by index, kept sorted so they print in order
+    private final TreeMap<Integer, Object> parameters = new TreeMap<>();
+    private Execution pending = null;
+
+    private TracingStatement(Statement statement, String sql) {
+        this.statement = statement;
+        this.sql = sql;
+    }
+
+    /**
+     * @param sql the SQL the statement was prepared with, null for a plain Statement
+     */
+    static Statement wrap(Statement statement, String sql) {
+        Class<?> type = statement instanceof CallableStatement ? CallableStatement.class
+                : statement instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+        return (Statement) Proxy.newProxyInstance(Statement.class.getClassLoader(), new Class<?>[]{type},
+                new TracingStatement(statement, sql));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        String name = method.getName();
+        if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+            parameters.put((Integer) args[0], args[1]);
+        } else if (name.equals("clearParameters")) {
+            parameters.clear();
+        } else if (name.equals("close")) {
+            finishPending();
+        } else if (name.startsWith("execute")) {
+            return execute(method, args);
+        }
+        return invokeTarget(method, args);
+    }
+
+    private Object execute(Method method, Object[] args) throws Throwable {
+        finishPending();
+        // Statement.execute*(sql, ...) carries its own SQL
+        String text = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : sql;
+        Execution execution = new Execution(text, parameters.isEmpty() ? null : new TreeMap<>(parameters));
+        long start = System.nanoTime();
+        Object result;
+        try {
+            result = invokeTarget(method, args);
+        } finally {
+            execution.nanos = System.nanoTime() - start;
+            JdbcStats.statementExecuted(execution.nanos);
+        }
+        if (result instanceof ResultSet) {
+            pending = execution;
+            return countingResultSet((ResultSet) result, execution);
+        }
+        if (result instanceof Integer || result instanceof Long) {
+            execution.rows = ((Number) result).longValue();
+        } else if (result instanceof int[]) {
+            for (int count : (int[]) result) {
+                execution.rows += Math.max(count, 0);
+            }
+        } else if (result instanceof Boolean && (Boolean) result) {
+            // execute() returned a result set, it is fetched with getResultSet
+            pending = execution;
+            return result;
+        }
+        execution.finish();
+        return result;
+    }
+
+    private void finishPending() {
+        if (pending != null) {
+            pending.finish();
+            pending = null;
+        }
+    }
+
+    private ResultSet countingResultSet(ResultSet rs, Execution execution) {
+        return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("close") && pending == execution) {
+                        finishPending();
+                    }
+                    Object result;
+                    try {
+                        result = method.invoke(rs, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                    if (method.getName().equals("next") && Boolean.TRUE.equals(result)) {
+                        execution.rows++;
+                    }
+                    return result;
+                });
+    }
+
+    private Object invokeTarget(Method method, Object[] args) throws Throwable {
+        try {
+            Object result = method.invoke(statement, args);
+            if (method.getName().equals("getResultSet") && result != null && pending != null) {
+                return countingResultSet((ResultSet) result, pending);
+            }
+            return result;
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static class Execution {
+        private final String sql;
+        private final TreeMap<Integer, Object> parameters;
+        private long nanos = 0;
+        private long rows = 0;
+
+        Execution(String sql, TreeMap<Integer, Object> parameters) {
+            this.sql = sql;
+            this.parameters = parameters;
+        }
+
+        void finish() {
+            SqlTracer.getInstance().record(sql, parameters, nanos, rows);
+        }
+    }
+}
@@ -1,12 +1,26 @@
 package scheduler.model;
 
-import scheduler.db.ConnectionManager;
-import scheduler.util.Util;
-
-import java.sql.*;
-import java.util.Arrays;
+import scheduler.repository.Repositories;
+import scheduler.repository.UserRecord;
+import scheduler.service.AvailabilityIndex;
+import scheduler.service.CapacityEvent;
+import scheduler.service.UsernameRegistry;
+import scheduler.service.Waitlist;
+import scheduler.util.CredentialEngine;
+import scheduler.util.ReadThroughCache;
+
+import java.sql.Date;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
 
 public class Caregiver {
+    // salt and hash by lower-cased username, usernames compare case-insensitively in the database
+    private static final ReadThroughCache<String, Caregiver> credentials = ReadThroughCache.configured("caregivers");
+
     private final String username;
     private final byte[] salt;
     private final byte[] hash;
@@ -37,40 +51,51 @@ public class Caregiver {
     }
 
     public void saveToDB() throws SQLException {
-        ConnectionManager cm = new ConnectionManager();
-        Connection con = cm.createConnection();
-
-        String addCaregiver = "INSERT INTO Caregivers VALUES (? , ?, ?)";
         try {
-            PreparedStatement statement = con.prepareStatement(addCaregiver);
-            statement.setString(1, this.username);
-            statement.setBytes(2, this.salt);
-            statement.setBytes(3, this.hash);
-            statement.executeUpdate();
+            Repositories.caregivers().insert(new UserRecord(this.username, this.salt, this.hash));
+            UsernameRegistry.caregivers().add(this.username);
+            credentials.invalidate(this.username.toLowerCase(Locale.ROOT));
         } catch (SQLException e) {
             throw new SQLException();
-        } finally {
-            cm.closeConnection();
         }
     }
 
     public void uploadAvailability(Date d) throws SQLException {
-        ConnectionManager cm = new ConnectionManager();
-        Connection con = cm.createConnection();
-
-        String addAvailability = "INSERT INTO Availabilities VALUES (? , ?)";
         try {
-            PreparedStatement statement = con.prepareStatement(addAvailability);
-            statement.setDate(1, d);
-            statement.setString(2, this.username);
-            statement.executeUpdate();
+            Repositories.availabilities().insert(d.toLocalDate(), this.username);
+            AvailabilityIndex.getInstance().add(d.toLocalDate(), this.username);
+            Waitlist.getInstance().publish(CapacityEvent.slots(d.toLocalDate(), d.toLocalDate()));
         } catch (SQLException e) {
             throw new SQLException();
-        } finally {
-            cm.closeConnection();
         }
     }
 
+    /**
+     * Uploads availability for all the dates in one batched transaction. Dates the caregiver is already
+     * available on are skipped. Returns how many dates were added.
+     */
+    public int uploadAvailability(List<Date> dates) throws SQLException {
+        List<LocalDate> days = new ArrayList<>();
+        for (Date d : dates) {
+            days.add(d.toLocalDate());
+        }
+        int added;
+        try {
+            added = Repositories.get().inTransaction(
+                    status -> Repositories.availabilities().insertMissing(this.username, days));
+        } catch (SQLException e) {
+            throw new SQLException(e);
+        }
+        AvailabilityIndex index = AvailabilityIndex.getInstance();
+        for (LocalDate day : days) {
+            index.add(day, this.username);
+        }
+        if (!days.isEmpty()) {
+            Waitlist.getInstance().publish(CapacityEvent.slots(Collections.min(days), Collections.max(days)));
+        }
+        return added;
+    }
+
     public static class CaregiverBuilder {
         private final String username;
         private final byte[] salt;
@@ -99,34 +124,32 @@ public class Caregiver {
         }
 
         public Caregiver get() throws SQLException {
-            ConnectionManager cm = new ConnectionManager();
-            Connection con = cm.createConnection();
+            // repeated logins with the same username only read the row once per TTL
+            Caregiver row = credentials.get(this.username.toLowerCase(Locale.ROOT), key -> load());
+            if (row == null) {
+                return null;
+            }
+            byte[] salt = row.salt;
+            byte[] hash = row.hash;
+            // check if the password matches, the connection is already back in the pool while we hash
+            if (!CredentialEngine.getInstance().verify(password, salt, hash)) {
+                return null;
+            }
+            this.salt = salt;
+            this.hash = hash;
+            return new Caregiver(this);
+        }
 
-            String getCaregiver = "SELECT Salt, Hash FROM Caregivers WHERE Username = ?";
+        // the stored salt and hash, or null if there is no such user
+        private Caregiver load() throws SQLException {
             try {
-                PreparedStatement statement = con.prepareStatement(getCaregiver);
-                statement.setString(1, this.username);
-                ResultSet resultSet = statement.executeQuery();
-                while (resultSet.next()) {
-                    byte[] salt = resultSet.getBytes("Salt");
-                    // we need to call Util.trim() to get rid of the paddings,
-                    // try to remove the use of Util.trim() and you'll see :)
-                    byte[] hash = Util.trim(resultSet.getBytes("Hash"));
-                    // check if the password matches
-                    byte[] calculatedHash = Util.generateHash(password, salt);
-                    if (!Arrays.equals(hash, calculatedHash)) {
-                        return null;
-                    } else {
-                        this.salt = salt;
-                        this.hash = hash;
-                        return new Caregiver(this);
-                    }
+                UserRecord user = Repositories.caregivers().find(this.username);
+                if (user == null) {
+                    return null;
                 }
-                return null;
+                return new CaregiverBuilder(this.username, user.getSalt(), user.getHash()).build();
             } catch (SQLException e) {
                 throw new SQLException();
-            } finally {
-                cm.closeConnection();
             }
         }
     }
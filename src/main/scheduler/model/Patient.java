@@ -1,12 +1,19 @@
 package scheduler.model;
 
-import scheduler.db.ConnectionManager;
-import scheduler.util.Util;
+import scheduler.repository.Repositories;
+import scheduler.repository.UserRecord;
+import scheduler.service.UsernameRegistry;
+import scheduler.util.CredentialEngine;
+import scheduler.util.ReadThroughCache;
 
-import java.sql.*;
-import java.util.Arrays;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.util.Locale;
 
 public class Patient {
+    // salt and hash by lower-cased username, usernames compare case-insensitively in the database
+    private static final ReadThroughCache<String, Patient> credentials = ReadThroughCache.configured("patients");
+
     private final String username;
     private final byte[] salt;
     private final byte[] hash;
@@ -37,37 +44,20 @@ public class Patient {
     }
 
     public void saveToDB() throws SQLException {
-        ConnectionManager cm = new ConnectionManager();
-        Connection con = cm.createConnection();
-
-        String addPatient = "INSERT INTO Patients VALUES (? , ?, ?)";
         try {
-            PreparedStatement statement = con.prepareStatement(addPatient);
-            statement.setString(1, this.username);
-            statement.setBytes(2, this.salt);
-            statement.setBytes(3, this.hash);
-            statement.executeUpdate();
+            Repositories.patients().insert(new UserRecord(this.username, this.salt, this.hash));
+            UsernameRegistry.patients().add(this.username);
+            credentials.invalidate(this.username.toLowerCase(Locale.ROOT));
         } catch (SQLException e) {
             throw new SQLException();
-        } finally {
-            cm.closeConnection();
         }
     }
 
     public void uploadAvailability(Date d) throws SQLException {
-        ConnectionManager cm = new ConnectionManager();
-        Connection con = cm.createConnection();
-
-        String addAvailability = "INSERT INTO Availabilities VALUES (? , ?)";
         try {
-            PreparedStatement statement = con.prepareStatement(addAvailability);
-            statement.setDate(1, d);
-            statement.setString(2, this.username);
-            statement.executeUpdate();
+            Repositories.availabilities().insert(d.toLocalDate(), this.username);
         } catch (SQLException e) {
             throw new SQLException();
-        } finally {
-            cm.closeConnection();
         }
     }
 
@@ -99,35 +89,33 @@ public class Patient {
         }
 
         public Patient get() throws SQLException {
-            ConnectionManager cm = new ConnectionManager();
-            Connection con = cm.createConnection();
+            // repeated logins with the same username only read the row once per TTL
+            Patient row = credentials.get(this.username.toLowerCase(Locale.ROOT), key -> load());
+            if (row == null) {
+                return null;
+            }
+            byte[] salt = row.salt;
+            byte[] hash = row.hash;
+            // check if the password matches, the connection is already back in the pool while we hash
+            if (!CredentialEngine.getInstance().verify(password, salt, hash)) {
+                return null;
+            }
+            this.salt = salt;
+            this.hash = hash;
+            return new Patient(this);
+        }
 
-            String getPatient = "SELECT Salt, Hash FROM Patients WHERE Username = ?";
+        // the stored salt and hash, or null if there is no such user
+        private Patient load() throws SQLException {
             try {
-                PreparedStatement statement = con.prepareStatement(getPatient);
-                statement.setString(1, this.username);
-                ResultSet resultSet = statement.executeQuery();
-                while (resultSet.next()) {
-                    byte[] salt = resultSet.getBytes("Salt");
-                    // we need to call Util.trim() to get rid of the paddings,
-                    // try to remove the use of Util.trim() and you'll see :)
-                    byte[] hash = Util.trim(resultSet.getBytes("Hash"));
-                    // check if the password matches
-                    byte[] calculatedHash = Util.generateHash(password, salt);
-                    if (!Arrays.equals(hash, calculatedHash)) {
-                        return null;
-                    } else {
-                        this.salt = salt;
-                        this.hash = hash;
-                        return new Patient(this);
-                    }
+                UserRecord user = Repositories.patients().find(this.username);
+                if (user == null) {
+                    return null;
                 }
-                return null;
+                return new PatientBuilder(this.username, user.getSalt(), user.getHash()).build();
             } catch (SQLException e) {
                 throw new SQLException();
-            } finally {
-                cm.closeConnection();
             }
         }
     }
-}
\ No newline at end of file
+}
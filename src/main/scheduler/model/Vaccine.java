@@ -1,13 +1,19 @@
 package scheduler.model;
 
-import scheduler.db.ConnectionManager;
+import scheduler.repository.Repositories;
+import scheduler.service.CapacityEvent;
+import scheduler.service.DoseInventory;
+import scheduler.service.Waitlist;
+import scheduler.util.ReadThroughCache;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
+import java.io.IOException;
 import java.sql.SQLException;
+import java.util.Locale;
 
 public class Vaccine {
+    // doses as stored in the table by lower-cased name, names compare case-insensitively in the database
+    private static final ReadThroughCache<String, Integer> catalog = ReadThroughCache.configured("vaccines");
+
     private final String vaccineName;
     private int availableDoses;
 
@@ -30,21 +36,25 @@ public class Vaccine {
         return availableDoses;
     }
 
-    public void saveToDB() throws SQLException {
-        ConnectionManager cm = new ConnectionManager();
-        Connection con = cm.createConnection();
+    /**
+     * Drops the cached row of a vaccine, called by every path that writes its doses.
+     */
+    public static void invalidate(String vaccineName) {
+        catalog.invalidate(vaccineName.toLowerCase(Locale.ROOT));
+    }
 
-        String addDoses = "INSERT INTO vaccines VALUES (?, ?)";
+    public void saveToDB() throws SQLException {
         try {
-            PreparedStatement statement = con.prepareStatement(addDoses);
-            statement.setString(1, this.vaccineName);
-            statement.setInt(2, this.availableDoses);
-            statement.executeUpdate();
+            Repositories.vaccines().insert(this.vaccineName, this.availableDoses);
+            invalidate(this.vaccineName);
         } catch (SQLException e) {
             throw new SQLException();
-        } finally {
-            cm.closeConnection();
         }
+        DoseInventory inventory = DoseInventory.getInstance();
+        if (inventory.isEnabled()) {
+            inventory.register(this.vaccineName, this.availableDoses);
+        }
+        Waitlist.getInstance().publish(CapacityEvent.doses(this.vaccineName));
     }
 
     // Increment the available doses
@@ -52,44 +62,56 @@ public class Vaccine {
         if (num <= 0) {
             throw new IllegalArgumentException("Argument cannot be negative!");
         }
-        this.availableDoses += num;
-
-        ConnectionManager cm = new ConnectionManager();
-        Connection con = cm.createConnection();
+        // the inventory counts in memory and writes the change to the table later
+        DoseInventory inventory = DoseInventory.getInstance();
+        if (inventory.isEnabled()) {
+            try {
+                if (inventory.add(this.vaccineName, num)) {
+                    this.availableDoses = inventory.available(this.vaccineName);
+                    Waitlist.getInstance().publish(CapacityEvent.doses(this.vaccineName));
+                    return;
+                }
+            } catch (IOException e) {
+                throw new SQLException("Could not write the dose journal", e);
+            }
+        }
 
-        String removeAvailability  = "UPDATE vaccines SET Doses = ? WHERE name = ?;";
         try {
-            PreparedStatement statement = con.prepareStatement(removeAvailability);
-            statement.setInt(1, this.availableDoses);
-            statement.setString(2, this.vaccineName);
-            statement.executeUpdate();
+            Repositories.vaccines().addDoses(this.vaccineName, num);
+            invalidate(this.vaccineName);
+            this.availableDoses += num;
+            Waitlist.getInstance().publish(CapacityEvent.doses(this.vaccineName));
         } catch (SQLException e) {
             throw new SQLException();
-        } finally {
-            cm.closeConnection();
         }
     }
 
     // Decrement the available doses
     public void decreaseAvailableDoses(int num) throws SQLException {
-        if (this.availableDoses - num < 0) {
-            throw new IllegalArgumentException("Not enough available doses!");
+        DoseInventory inventory = DoseInventory.getInstance();
+        if (inventory.isEnabled()) {
+            try {
+                if (!inventory.remove(this.vaccineName, num)) {
+                    throw new IllegalArgumentException("Not enough available doses!");
+                }
+                this.availableDoses = inventory.available(this.vaccineName);
+                return;
+            } catch (IOException e) {
+                throw new SQLException("Could not write the dose journal", e);
+            }
         }
-        this.availableDoses -= num;
-        ConnectionManager cm = new ConnectionManager();
-        Connection con = cm.createConnection();
 
-        String removeAvailability  = "UPDATE vaccines SET Doses = ? WHERE name = ?;";
+        boolean taken;
         try {
-            PreparedStatement statement = con.prepareStatement(removeAvailability);
-            statement.setInt(1, this.availableDoses);
-            statement.setString(2, this.vaccineName);
-            statement.executeUpdate();
+            taken = Repositories.vaccines().takeDoses(this.vaccineName, num);
+            invalidate(this.vaccineName);
         } catch (SQLException e) {
             throw new SQLException();
-        } finally {
-            cm.closeConnection();
         }
+        if (!taken) {
+            throw new IllegalArgumentException("Not enough available doses!");
+        }
+        this.availableDoses -= num;
     }
 
     @Override
@@ -123,23 +145,25 @@ public class Vaccine {
         }
 
         public Vaccine get() throws SQLException {
-            ConnectionManager cm = new ConnectionManager();
-            Connection con = cm.createConnection();
+            Integer doses = catalog.get(this.vaccineName.toLowerCase(Locale.ROOT), key -> load());
+            if (doses == null) {
+                return null;
+            }
+            this.availableDoses = doses;
+            // the table lags behind the inventory until the next flush
+            DoseInventory inventory = DoseInventory.getInstance();
+            if (inventory.isEnabled()) {
+                this.availableDoses = Math.max(0, inventory.available(this.vaccineName));
+            }
+            return new Vaccine(this);
+        }
 
-            String getVaccine = "SELECT Name, Doses FROM Vaccines WHERE Name = ?";
+        // the stored doses, or null if there is no such vaccine
+        private Integer load() throws SQLException {
             try {
-                PreparedStatement statement = con.prepareStatement(getVaccine);
-                statement.setString(1, this.vaccineName);
-                ResultSet resultSet = statement.executeQuery();
-                while (resultSet.next()) {
-                    this.availableDoses = resultSet.getInt("Doses");
-                    return new Vaccine(this);
-                }
-                return null;
+                return Repositories.vaccines().findDoses(this.vaccineName);
             } catch (SQLException e) {
                 throw new SQLException();
-            } finally {
-                cm.closeConnection();
             }
         }
     }
@@ -0,0 +1,42 @@
+package scheduler.repository;
+
+import java.time.LocalDate;
+
+/**
+ * A row of Appointments.
+ */
+public class AppointmentRecord {
+    private final int id;
+    private final LocalDate date;
+    private final String patient;
+    private final String caregiver;
+    private final String vaccine;
+
+    public AppointmentRecord(int id, LocalDate date, String patient, String caregiver, String vaccine) {
+        this.id = id;
+        this.date = date;
+        this.patient = patient;
+        this.caregiver = caregiver;
+        this.vaccine = vaccine;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+
+    public String getPatient() {
+        return patient;
+    }
+
+    public String getCaregiver() {
+        return caregiver;
+    }
+
+    public String getVaccine() {
+        return vaccine;
+    }
+}
@@ -0,0 +1,46 @@
+package scheduler.repository;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Booked appointments.
+ */
+public interface AppointmentRepository {
+
+    /**
+     * Returns an id no other appointment has or will get.
+     */
+    int nextId() throws SQLException;
+
+    void insert(AppointmentRecord appointment) throws SQLException;
+
+    void insertAll(List<AppointmentRecord> appointments) throws SQLException;
+
+    /**
+     * Returns the appointment if the user is its caregiver, or its patient, null otherwise.
+     */
+    AppointmentRecord find(int id, String username, boolean caregiver) throws SQLException;
+
+    boolean exists(int id) throws SQLException;
+
+    /**
+     * Deletes the appointment, returns false if it did not exist.
+     */
+    boolean delete(int id) throws SQLException;
+
+    /**
+     * Passes the appointments of a patient, or of a caregiver, with an id above {@code afterId} to the consumer
+     * in id order as they are read, and returns how many there were. A limit of 0 means no limit.
+     */
+    int forEachFor(String username, boolean caregiver, int afterId, int limit, Consumer<AppointmentRecord> consumer)
+            throws SQLException;
+
+    /**
+     * Returns the number of appointments on or after the date per caregiver.
+     */
+    Map<String, Integer> countPerCaregiver(LocalDate from) throws SQLException;
+}
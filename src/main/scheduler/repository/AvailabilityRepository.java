@@ -0,0 +1,61 @@
+package scheduler.repository;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.function.BiConsumer;
+
+/**
+ * The dates caregivers are available on.
+ */
+public interface AvailabilityRepository {
+
+    /**
+     * Inserts one availability, fails if the caregiver is already available on the date.
+     */
+    void insert(LocalDate date, String caregiver) throws SQLException;
+
+    /**
+     * Inserts the dates the caregiver is not available on yet and returns how many were inserted.
+     */
+    int insertMissing(String caregiver, List<LocalDate> dates) throws SQLException;
+
+    /**
+     * Removes one availability, returns false if it did not exist. Of several concurrent callers at most
+     * one gets true, which is how a reservation claims a slot.
+     */
+    boolean remove(LocalDate date, String caregiver) throws SQLException;
+
+    /**
+     * Returns the caregivers available on the date in alphabetical order.
+     */
+    List<String> caregiversOn(LocalDate date) throws SQLException;
+
+    /**
+     * Returns the caregivers available per date between {@code from} and {@code to} inclusive, each list in
+     * alphabetical order. Dates without any are left out.
+     */
+    NavigableMap<LocalDate, List<String>> caregiversBetween(LocalDate from, LocalDate to) throws SQLException;
+
+    /**
+     * Removes the availability each appointment takes up and returns how many of them existed.
+     */
+    int removeAll(List<AppointmentRecord> appointments) throws SQLException;
+
+    /**
+     * Returns the number of available caregivers per date between {@code from} and {@code to} inclusive,
+     * dates without any are left out.
+     */
+    NavigableMap<LocalDate, Integer> countsBetween(LocalDate from, LocalDate to) throws SQLException;
+
+    /**
+     * Returns the first date on or after {@code from} with an available caregiver, or null.
+     */
+    LocalDate nextAvailable(LocalDate from) throws SQLException;
+
+    /**
+     * Calls {@code consumer} with every availability.
+     */
+    void forEach(BiConsumer<LocalDate, String> consumer) throws SQLException;
+}
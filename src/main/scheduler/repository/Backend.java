@@ -0,0 +1,41 @@
+package scheduler.repository;
+
+import java.sql.SQLException;
+
+/**
+ * Where the scheduler keeps its data, see {@link Repositories} for how one is chosen.
+ */
+public interface Backend {
+
+    /**
+     * A unit of work, everything it does through the repositories commits or rolls back together.
+     */
+    interface Work<T> {
+        T run(TransactionStatus status) throws SQLException;
+    }
+
+    UserRepository patients();
+
+    UserRepository caregivers();
+
+    VaccineRepository vaccines();
+
+    AvailabilityRepository availabilities();
+
+    AppointmentRepository appointments();
+
+    HoldRepository holds();
+
+    /**
+     * Runs the work in one transaction. It commits when the work returns normally, and rolls back when the
+     * work throws or marks the status rollback-only.
+     */
+    <T> T inTransaction(Work<T> work) throws SQLException;
+
+    /**
+     * True if the data is in a JDBC database, which the SQL-only parts (migrations, the dose journal) need.
+     */
+    boolean isJdbc();
+
+    void shutdown();
+}
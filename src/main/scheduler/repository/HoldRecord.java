@@ -0,0 +1,56 @@
+package scheduler.repository;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * A row of Holds, a caregiver slot and a dose claimed for a patient until it is confirmed or expires.
+ */
+public class HoldRecord {
+    private final String token;
+    private final int appointmentId;
+    private final LocalDate date;
+    private final String patient;
+    private final String caregiver;
+    private final String vaccine;
+    private final Instant expiresAt;
+
+    public HoldRecord(String token, int appointmentId, LocalDate date, String patient, String caregiver,
+                      String vaccine, Instant expiresAt) {
+        this.token = token;
+        this.appointmentId = appointmentId;
+        this.date = date;
+        this.patient = patient;
+        this.caregiver = caregiver;
+        this.vaccine = vaccine;
+        this.expiresAt = expiresAt;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    public int getAppointmentId() {
+        return appointmentId;
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+
+    public String getPatient() {
+        return patient;
+    }
+
+    public String getCaregiver() {
+        return caregiver;
+    }
+
+    public String getVaccine() {
+        return vaccine;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+}
@@ -0,0 +1,29 @@
+package scheduler.repository;
+
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Holds that have been neither confirmed nor released yet.
+ */
+public interface HoldRepository {
+
+    void insert(HoldRecord hold) throws SQLException;
+
+    /**
+     * Returns the hold, or null if there is none with that token.
+     */
+    HoldRecord find(String token) throws SQLException;
+
+    /**
+     * Deletes the hold, returns false if it did not exist. Of a confirm and a release racing for the same
+     * hold only one gets true.
+     */
+    boolean delete(String token) throws SQLException;
+
+    /**
+     * Returns up to {@code limit} holds that expired before {@code now}, oldest first.
+     */
+    List<HoldRecord> findExpired(Instant now, int limit) throws SQLException;
+}
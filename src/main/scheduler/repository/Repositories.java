@@ -0,0 +1,74 @@
+package scheduler.repository;
+
+import scheduler.repository.memory.MemoryBackend;
+import scheduler.repository.sql.SqlBackend;
+
+import java.util.Locale;
+
+/**
+ * Chooses the backend from the Backend setting, as a system property or environment variable.
+ *
+ * sqlserver (the default) uses the database ConnectionManager points at, memory keeps everything in this
+ * process so the scheduler runs and can be load tested without any database.
+ */
+public final class Repositories {
+
+    private static volatile Backend backend = null;
+
+    private Repositories() {
+    }
+
+    public static Backend get() {
+        if (backend == null) {
+            synchronized (Repositories.class) {
+                if (backend == null) {
+                    backend = create(setting("Backend", "sqlserver"));
+                }
+            }
+        }
+        return backend;
+    }
+
+    private static Backend create(String name) {
+        switch (name.toLowerCase(Locale.ROOT)) {
+            case "memory":
+                return new MemoryBackend();
+            case "sqlserver":
+                return new SqlBackend();
+            default:
+                throw new IllegalArgumentException("Unknown backend: " + name);
+        }
+    }
+
+    private static String setting(String name, String defaultValue) {
+        String value = System.getProperty(name);
+        if (value == null) {
+            value = System.getenv(name);
+        }
+        return value != null ? value : defaultValue;
+    }
+
+    public static UserRepository patients() {
+        return get().patients();
+    }
+
+    public static UserRepository caregivers() {
+        return get().caregivers();
+    }
+
+    public static VaccineRepository vaccines() {
+        return get().vaccines();
+    }
+
+    public static AvailabilityRepository availabilities() {
+        return get().availabilities();
+    }
+
+    public static AppointmentRepository appointments() {
+        return get().appointments();
+    }
+
+    public static HoldRepository holds() {
+        return get().holds();
+    }
+}
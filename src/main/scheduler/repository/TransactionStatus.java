@@ -0,0 +1,16 @@
+package scheduler.repository;
+
+/**
+ * Lets a unit of work roll its transaction back without throwing.
+ */
+public class TransactionStatus {
+    private boolean rollbackOnly = false;
+
+    public void setRollbackOnly() {
+        rollbackOnly = true;
+    }
+
+    public boolean isRollbackOnly() {
+        return rollbackOnly;
+    }
+}
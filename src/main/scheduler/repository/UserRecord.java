@@ -0,0 +1,28 @@
+package scheduler.repository;
+
+/**
+ * A row of Patients or Caregivers.
+ */
+public class UserRecord {
+    private final String username;
+    private final byte[] salt;
+    private final byte[] hash;
+
+    public UserRecord(String username, byte[] salt, byte[] hash) {
+        this.username = username;
+        this.salt = salt;
+        this.hash = hash;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public byte[] getSalt() {
+        return salt;
+    }
+
+    public byte[] getHash() {
+        return hash;
+    }
+}
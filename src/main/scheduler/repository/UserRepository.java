@@ -0,0 +1,29 @@
+package scheduler.repository;
+
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Patients or caregivers, both tables have the same shape. Usernames compare case-insensitively.
+ */
+public interface UserRepository {
+
+    /**
+     * Returns the user, or null if there is none.
+     */
+    UserRecord find(String username) throws SQLException;
+
+    boolean exists(String username) throws SQLException;
+
+    /**
+     * Inserts a new user, fails if the username is taken.
+     */
+    void insert(UserRecord user) throws SQLException;
+
+    /**
+     * Inserts the users whose username is not taken yet and returns how many were inserted.
+     */
+    int insertMissing(List<UserRecord> users) throws SQLException;
+
+    List<String> usernames() throws SQLException;
+}
@@ -0,0 +1,40 @@
+package scheduler.repository;
+
+import java.sql.SQLException;
+import java.util.Map;
+
+/**
+ * Vaccines and their doses. Names compare case-insensitively.
+ */
+public interface VaccineRepository {
+
+    /**
+     * Returns the doses left, or null if the vaccine does not exist.
+     */
+    Integer findDoses(String name) throws SQLException;
+
+    /**
+     * Returns the doses left per vaccine, sorted by name.
+     */
+    Map<String, Integer> findAll() throws SQLException;
+
+    /**
+     * Inserts a new vaccine, fails if it exists already.
+     */
+    void insert(String name, int doses) throws SQLException;
+
+    /**
+     * Adds to the doses of an existing vaccine, relative to whatever is stored at that moment.
+     */
+    void addDoses(String name, int doses) throws SQLException;
+
+    /**
+     * Takes doses only if enough are left, returns false otherwise.
+     */
+    boolean takeDoses(String name, int doses) throws SQLException;
+
+    /**
+     * Adds the doses to the vaccines that exist and inserts the others.
+     */
+    void addOrInsert(Map<String, Integer> doses) throws SQLException;
+}
@@ -0,0 +1,112 @@
+package scheduler.repository.memory;
+
+import scheduler.repository.AppointmentRecord;
+import scheduler.repository.AppointmentRepository;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+class MemoryAppointmentRepository implements AppointmentRepository {
+
+    private final MemoryBackend backend;
+    private final TreeMap<Integer, AppointmentRecord> appointments = new TreeMap<>();
+    // like the SQL ids, one taken by a rolled back booking is not handed out again
+    private final AtomicInteger lastId = new AtomicInteger();
+
+    MemoryAppointmentRepository(MemoryBackend backend) {
+        this.backend = backend;
+    }
+
+    @Override
+    public int nextId() {
+        return lastId.incrementAndGet();
+    }
+
+    @Override
+    public void insert(AppointmentRecord appointment) throws SQLException {
+        backend.locked(() -> {
+            if (appointments.putIfAbsent(appointment.getId(), appointment) != null) {
+                throw new SQLException("Duplicate appointment ID: " + appointment.getId(), "23000");
+            }
+            backend.onRollback(() -> appointments.remove(appointment.getId()));
+            return null;
+        });
+    }
+
+    @Override
+    public void insertAll(List<AppointmentRecord> appointments) throws SQLException {
+        for (AppointmentRecord appointment : appointments) {
+            insert(appointment);
+        }
+    }
+
+    @Override
+    public AppointmentRecord find(int id, String username, boolean caregiver) throws SQLException {
+        return backend.locked(() -> {
+            AppointmentRecord appointment = appointments.get(id);
+            if (appointment == null ||
+                    !(caregiver ? appointment.getCaregiver() : appointment.getPatient()).equalsIgnoreCase(username)) {
+                return null;
+            }
+            return appointment;
+        });
+    }
+
+    @Override
+    public boolean exists(int id) throws SQLException {
+        return backend.locked(() -> appointments.containsKey(id));
+    }
+
+    @Override
+    public boolean delete(int id) throws SQLException {
+        return backend.locked(() -> {
+            AppointmentRecord appointment = appointments.remove(id);
+            if (appointment == null) {
+                return false;
+            }
+            backend.onRollback(() -> appointments.put(id, appointment));
+            return true;
+        });
+    }
+
+    @Override
+    public int forEachFor(String username, boolean caregiver, int afterId, int limit,
+                          Consumer<AppointmentRecord> consumer) throws SQLException {
+        // copied under the lock so a slow reader does not hold up bookings
+        List<AppointmentRecord> page = backend.locked(() -> {
+            List<AppointmentRecord> found = new ArrayList<>();
+            for (AppointmentRecord appointment : appointments.tailMap(afterId, false).values()) {
+                String owner = caregiver ? appointment.getCaregiver() : appointment.getPatient();
+                if (owner.equalsIgnoreCase(username)) {
+                    found.add(appointment);
+                    if (found.size() == limit) {
+                        break;
+                    }
+                }
+            }
+            return found;
+        });
+        page.forEach(consumer);
+        return page.size();
+    }
+
+    @Override
+    public Map<String, Integer> countPerCaregiver(LocalDate from) throws SQLException {
+        return backend.locked(() -> {
+            Map<String, Integer> counts = new HashMap<>();
+            for (AppointmentRecord appointment : appointments.values()) {
+                if (!appointment.getDate().isBefore(from)) {
+                    counts.merge(appointment.getCaregiver(), 1, Integer::sum);
+                }
+            }
+            return counts;
+        });
+    }
+}
@@ -0,0 +1,143 @@
+package scheduler.repository.memory;
+
+import scheduler.repository.AppointmentRecord;
+import scheduler.repository.AvailabilityRepository;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.BiConsumer;
+
+class MemoryAvailabilityRepository implements AvailabilityRepository {
+
+    private final MemoryBackend backend;
+    private final MemoryUserRepository caregivers;
+    private final TreeMap<LocalDate, TreeSet<String>> slots = new TreeMap<>();
+
+    MemoryAvailabilityRepository(MemoryBackend backend, MemoryUserRepository caregivers) {
+        this.backend = backend;
+        this.caregivers = caregivers;
+    }
+
+    @Override
+    public void insert(LocalDate date, String caregiver) throws SQLException {
+        backend.locked(() -> {
+            if (!add(date, caregiver)) {
+                throw new SQLException("Duplicate availability: " + caregiver + " on " + date, "23000");
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public int insertMissing(String caregiver, List<LocalDate> dates) throws SQLException {
+        return backend.locked(() -> {
+            int inserted = 0;
+            for (LocalDate date : dates) {
+                if (add(date, caregiver)) {
+                    inserted++;
+                }
+            }
+            return inserted;
+        });
+    }
+
+    // the lock is reentrant, so the caregiver lookup joins the caller's hold of it
+    private boolean add(LocalDate date, String caregiver) throws SQLException {
+        if (!caregivers.exists(caregiver)) {
+            throw new SQLException("No such caregiver: " + caregiver, "23000");
+        }
+        if (!slots.computeIfAbsent(date, d -> new TreeSet<>(String.CASE_INSENSITIVE_ORDER)).add(caregiver)) {
+            return false;
+        }
+        backend.onRollback(() -> delete(date, caregiver));
+        return true;
+    }
+
+    @Override
+    public boolean remove(LocalDate date, String caregiver) throws SQLException {
+        return backend.locked(() -> {
+            if (!delete(date, caregiver)) {
+                return false;
+            }
+            backend.onRollback(() -> slots.computeIfAbsent(date,
+                    d -> new TreeSet<>(String.CASE_INSENSITIVE_ORDER)).add(caregiver));
+            return true;
+        });
+    }
+
+    private boolean delete(LocalDate date, String caregiver) {
+        TreeSet<String> names = slots.get(date);
+        if (names == null || !names.remove(caregiver)) {
+            return false;
+        }
+        if (names.isEmpty()) {
+            slots.remove(date);
+        }
+        return true;
+    }
+
+    @Override
+    public List<String> caregiversOn(LocalDate date) throws SQLException {
+        return backend.locked(() -> {
+            TreeSet<String> names = slots.get(date);
+            return names == null ? new ArrayList<>() : new ArrayList<>(names);
+        });
+    }
+
+    @Override
+    public NavigableMap<LocalDate, List<String>> caregiversBetween(LocalDate from, LocalDate to)
+            throws SQLException {
+        return backend.locked(() -> {
+            NavigableMap<LocalDate, List<String>> caregivers = new TreeMap<>();
+            for (Map.Entry<LocalDate, TreeSet<String>> entry : slots.subMap(from, true, to, true).entrySet()) {
+                caregivers.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+            }
+            return caregivers;
+        });
+    }
+
+    @Override
+    public int removeAll(List<AppointmentRecord> appointments) throws SQLException {
+        int removed = 0;
+        for (AppointmentRecord appointment : appointments) {
+            if (remove(appointment.getDate(), appointment.getCaregiver())) {
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    @Override
+    public NavigableMap<LocalDate, Integer> countsBetween(LocalDate from, LocalDate to) throws SQLException {
+        return backend.locked(() -> {
+            NavigableMap<LocalDate, Integer> counts = new TreeMap<>();
+            for (Map.Entry<LocalDate, TreeSet<String>> entry : slots.subMap(from, true, to, true).entrySet()) {
+                counts.put(entry.getKey(), entry.getValue().size());
+            }
+            return counts;
+        });
+    }
+
+    @Override
+    public LocalDate nextAvailable(LocalDate from) throws SQLException {
+        return backend.locked(() -> slots.ceilingKey(from));
+    }
+
+    @Override
+    public void forEach(BiConsumer<LocalDate, String> consumer) throws SQLException {
+        backend.locked(() -> {
+            for (Map.Entry<LocalDate, TreeSet<String>> entry : slots.entrySet()) {
+                for (String caregiver : entry.getValue()) {
+                    consumer.accept(entry.getKey(), caregiver);
+                }
+            }
+            return null;
+        });
+    }
+}
@@ -0,0 +1,127 @@
+package scheduler.repository.memory;
+
+import scheduler.repository.AppointmentRepository;
+import scheduler.repository.AvailabilityRepository;
+import scheduler.repository.Backend;
+import scheduler.repository.HoldRepository;
+import scheduler.repository.TransactionStatus;
+import scheduler.repository.UserRepository;
+import scheduler.repository.VaccineRepository;
+
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps all data in this process, nothing survives a restart.
+ *
+ * Every operation runs under one lock and a transaction holds it from start to end, so transactions are
+ * serializable. Writes inside a transaction record how to undo themselves, a rollback replays the undo log
+ * backwards. Uniqueness and the foreign key of Availabilities are checked the way the tables would, a
+ * violation throws SQLException.
+ */
+public class MemoryBackend implements Backend {
+
+    interface Operation<T> {
+        T run() throws SQLException;
+    }
+
+    private final ReentrantLock lock = new ReentrantLock();
+    // the undo log of the transaction running on this thread, null outside a transaction
+    private final ThreadLocal<Deque<Runnable>> undoLog = new ThreadLocal<>();
+
+    private final MemoryUserRepository patients = new MemoryUserRepository(this);
+    private final MemoryUserRepository caregivers = new MemoryUserRepository(this);
+    private final MemoryVaccineRepository vaccines = new MemoryVaccineRepository(this);
+    private final MemoryAvailabilityRepository availabilities = new MemoryAvailabilityRepository(this, caregivers);
+    private final MemoryAppointmentRepository appointments = new MemoryAppointmentRepository(this);
+    private final MemoryHoldRepository holds = new MemoryHoldRepository(this);
+
+    <T> T locked(Operation<T> operation) throws SQLException {
+        lock.lock();
+        try {
+            return operation.run();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // called with the lock held after each write, outside a transaction the write is final
+    void onRollback(Runnable undo) {
+        Deque<Runnable> log = undoLog.get();
+        if (log != null) {
+            log.push(undo);
+        }
+    }
+
+    @Override
+    public UserRepository patients() {
+        return patients;
+    }
+
+    @Override
+    public UserRepository caregivers() {
+        return caregivers;
+    }
+
+    @Override
+    public VaccineRepository vaccines() {
+        return vaccines;
+    }
+
+    @Override
+    public AvailabilityRepository availabilities() {
+        return availabilities;
+    }
+
+    @Override
+    public AppointmentRepository appointments() {
+        return appointments;
+    }
+
+    @Override
+    public HoldRepository holds() {
+        return holds;
+    }
+
+    @Override
+    public <T> T inTransaction(Work<T> work) throws SQLException {
+        if (undoLog.get() != null) {
+            throw new IllegalStateException("Transactions cannot be nested");
+        }
+        lock.lock();
+        Deque<Runnable> log = new ArrayDeque<>();
+        undoLog.set(log);
+        try {
+            TransactionStatus status = new TransactionStatus();
+            T result = work.run(status);
+            if (status.isRollbackOnly()) {
+                rollback(log);
+            }
+            return result;
+        } catch (SQLException | RuntimeException e) {
+            rollback(log);
+            throw e;
+        } finally {
+            undoLog.remove();
+            lock.unlock();
+        }
+    }
+
+    private static void rollback(Deque<Runnable> log) {
+        Runnable undo;
+        while ((undo = log.poll()) != null) {
+            undo.run();
+        }
+    }
+
+    @Override
+    public boolean isJdbc() {
+        return false;
+    }
+
+    @Override
+    public void shutdown() {
+    }
+}
@@ -0,0 +1,64 @@
+package scheduler.repository.memory;
+
+import scheduler.repository.HoldRecord;
+import scheduler.repository.HoldRepository;
+
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+class MemoryHoldRepository implements HoldRepository {
+
+    private final MemoryBackend backend;
+    private final Map<String, HoldRecord> holds = new HashMap<>();
+
+    MemoryHoldRepository(MemoryBackend backend) {
+        this.backend = backend;
+    }
+
+    @Override
+    public void insert(HoldRecord hold) throws SQLException {
+        backend.locked(() -> {
+            if (holds.putIfAbsent(hold.getToken(), hold) != null) {
+                throw new SQLException("Duplicate hold token: " + hold.getToken(), "23000");
+            }
+            backend.onRollback(() -> holds.remove(hold.getToken()));
+            return null;
+        });
+    }
+
+    @Override
+    public HoldRecord find(String token) throws SQLException {
+        return backend.locked(() -> holds.get(token));
+    }
+
+    @Override
+    public boolean delete(String token) throws SQLException {
+        return backend.locked(() -> {
+            HoldRecord hold = holds.remove(token);
+            if (hold == null) {
+                return false;
+            }
+            backend.onRollback(() -> holds.put(token, hold));
+            return true;
+        });
+    }
+
+    @Override
+    public List<HoldRecord> findExpired(Instant now, int limit) throws SQLException {
+        return backend.locked(() -> {
+            List<HoldRecord> expired = new ArrayList<>();
+            for (HoldRecord hold : holds.values()) {
+                if (hold.getExpiresAt().isBefore(now)) {
+                    expired.add(hold);
+                }
+            }
+            expired.sort(Comparator.comparing(HoldRecord::getExpiresAt));
+            return expired.size() > limit ? new ArrayList<>(expired.subList(0, limit)) : expired;
+        });
+    }
+}
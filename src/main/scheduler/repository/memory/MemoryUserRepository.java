@@ -0,0 +1,64 @@
+package scheduler.repository.memory;
+
+import scheduler.repository.UserRecord;
+import scheduler.repository.UserRepository;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+
+class MemoryUserRepository implements UserRepository {
+
+    private final MemoryBackend backend;
+    private final TreeMap<String, UserRecord> users = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+    MemoryUserRepository(MemoryBackend backend) {
+        this.backend = backend;
+    }
+
+    @Override
+    public UserRecord find(String username) throws SQLException {
+        return backend.locked(() -> users.get(username));
+    }
+
+    @Override
+    public boolean exists(String username) throws SQLException {
+        return backend.locked(() -> users.containsKey(username));
+    }
+
+    @Override
+    public void insert(UserRecord user) throws SQLException {
+        backend.locked(() -> {
+            if (users.containsKey(user.getUsername())) {
+                throw new SQLException("Duplicate username: " + user.getUsername(), "23000");
+            }
+            put(user);
+            return null;
+        });
+    }
+
+    @Override
+    public int insertMissing(List<UserRecord> users) throws SQLException {
+        return backend.locked(() -> {
+            int inserted = 0;
+            for (UserRecord user : users) {
+                if (!this.users.containsKey(user.getUsername())) {
+                    put(user);
+                    inserted++;
+                }
+            }
+            return inserted;
+        });
+    }
+
+    private void put(UserRecord user) {
+        users.put(user.getUsername(), user);
+        backend.onRollback(() -> users.remove(user.getUsername()));
+    }
+
+    @Override
+    public List<String> usernames() throws SQLException {
+        return backend.locked(() -> new ArrayList<>(users.keySet()));
+    }
+}
@@ -0,0 +1,86 @@
+package scheduler.repository.memory;
+
+import scheduler.repository.VaccineRepository;
+
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.TreeMap;
+
+class MemoryVaccineRepository implements VaccineRepository {
+
+    private final MemoryBackend backend;
+    private final TreeMap<String, Integer> doses = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+    MemoryVaccineRepository(MemoryBackend backend) {
+        this.backend = backend;
+    }
+
+    @Override
+    public Integer findDoses(String name) throws SQLException {
+        return backend.locked(() -> doses.get(name));
+    }
+
+    @Override
+    public Map<String, Integer> findAll() throws SQLException {
+        return backend.locked(() -> {
+            Map<String, Integer> copy = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            copy.putAll(doses);
+            return copy;
+        });
+    }
+
+    @Override
+    public void insert(String name, int doses) throws SQLException {
+        backend.locked(() -> {
+            if (this.doses.containsKey(name)) {
+                throw new SQLException("Duplicate vaccine: " + name, "23000");
+            }
+            set(name, doses);
+            return null;
+        });
+    }
+
+    @Override
+    public void addDoses(String name, int doses) throws SQLException {
+        backend.locked(() -> {
+            Integer current = this.doses.get(name);
+            if (current != null) {
+                set(name, current + doses);
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public boolean takeDoses(String name, int doses) throws SQLException {
+        return backend.locked(() -> {
+            Integer current = this.doses.get(name);
+            if (current == null || current < doses) {
+                return false;
+            }
+            set(name, current - doses);
+            return true;
+        });
+    }
+
+    @Override
+    public void addOrInsert(Map<String, Integer> doses) throws SQLException {
+        backend.locked(() -> {
+            for (Map.Entry<String, Integer> entry : doses.entrySet()) {
+                set(entry.getKey(), this.doses.getOrDefault(entry.getKey(), 0) + entry.getValue());
+            }
+            return null;
+        });
+    }
+
+    private void set(String name, int value) {
+        Integer previous = doses.put(name, value);
+        backend.onRollback(() -> {
+            if (previous == null) {
+                doses.remove(name);
+            } else {
+                doses.put(name, previous);
+            }
+        });
+    }
+}
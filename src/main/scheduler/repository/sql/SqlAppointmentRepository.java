@@ -0,0 +1,155 @@
+package scheduler.repository.sql;
+
+import scheduler.db.IdAllocator;
+import scheduler.repository.AppointmentRecord;
+import scheduler.repository.AppointmentRepository;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+class SqlAppointmentRepository extends SqlRepository implements AppointmentRepository {
+
+    private static final String INSERT = "INSERT INTO Appointments VALUES (?, ?, ?, ?, ?)";
+    private static final String SELECT_OF_PATIENT = "SELECT appoID, Time, Patient, Caregiver, Vaccine " +
+            "FROM Appointments WHERE appoID = ? AND Patient = ?";
+    private static final String SELECT_OF_CAREGIVER = "SELECT appoID, Time, Patient, Caregiver, Vaccine " +
+            "FROM Appointments WHERE appoID = ? AND Caregiver = ?";
+    private static final String EXISTS = "SELECT 1 FROM Appointments WHERE appoID = ?";
+    private static final String DELETE = "DELETE FROM Appointments WHERE appoID = ?";
+    private static final String SELECT_FOR_PATIENT = "SELECT appoID, Time, Patient, Caregiver, Vaccine " +
+            "FROM Appointments WHERE Patient = ? AND appoID > ? ORDER BY appoID";
+    private static final String SELECT_FOR_CAREGIVER = "SELECT appoID, Time, Patient, Caregiver, Vaccine " +
+            "FROM Appointments WHERE Caregiver = ? AND appoID > ? ORDER BY appoID";
+    private static final String COUNT_PER_CAREGIVER =
+            "SELECT Caregiver, COUNT(*) FROM Appointments WHERE Time >= ? GROUP BY Caregiver";
+    // rows fetched per round trip when listing appointments
+    private static final int FETCH_SIZE = 100;
+
+    // leased outside any booking transaction so a rolled back booking does not give the block back
+    private final IdAllocator ids = new IdAllocator("Appointments", "SELECT MAX(appoID) FROM Appointments", 100);
+
+    @Override
+    public int nextId() throws SQLException {
+        return ids.nextIntId();
+    }
+
+    @Override
+    public void insert(AppointmentRecord appointment) throws SQLException {
+        withConnection(con -> {
+            try (PreparedStatement statement = con.prepareStatement(INSERT)) {
+                statement.setInt(1, appointment.getId());
+                statement.setDate(2, Date.valueOf(appointment.getDate()));
+                statement.setString(3, appointment.getPatient());
+                statement.setString(4, appointment.getCaregiver());
+                statement.setString(5, appointment.getVaccine());
+                return statement.executeUpdate();
+            }
+        });
+    }
+
+    @Override
+    public void insertAll(List<AppointmentRecord> appointments) throws SQLException {
+        if (appointments.isEmpty()) {
+            return;
+        }
+        withConnection(con -> {
+            try (PreparedStatement statement = con.prepareStatement(INSERT)) {
+                for (AppointmentRecord appointment : appointments) {
+                    statement.setInt(1, appointment.getId());
+                    statement.setDate(2, Date.valueOf(appointment.getDate()));
+                    statement.setString(3, appointment.getPatient());
+                    statement.setString(4, appointment.getCaregiver());
+                    statement.setString(5, appointment.getVaccine());
+                    statement.addBatch();
+                }
+                return statement.executeBatch();
+            }
+        });
+    }
+
+    @Override
+    public AppointmentRecord find(int id, String username, boolean caregiver) throws SQLException {
+        return withConnection(con -> {
+            try (PreparedStatement statement =
+                         con.prepareStatement(caregiver ? SELECT_OF_CAREGIVER : SELECT_OF_PATIENT)) {
+                statement.setInt(1, id);
+                statement.setString(2, username);
+                try (ResultSet rs = statement.executeQuery()) {
+                    return rs.next() ? read(rs) : null;
+                }
+            }
+        });
+    }
+
+    @Override
+    public boolean exists(int id) throws SQLException {
+        return withConnection(con -> {
+            try (PreparedStatement statement = con.prepareStatement(EXISTS)) {
+                statement.setInt(1, id);
+                try (ResultSet rs = statement.executeQuery()) {
+                    return rs.next();
+                }
+            }
+        });
+    }
+
+    @Override
+    public boolean delete(int id) throws SQLException {
+        return withConnection(con -> {
+            try (PreparedStatement statement = con.prepareStatement(DELETE)) {
+                statement.setInt(1, id);
+                return statement.executeUpdate() == 1;
+            }
+        });
+    }
+
+    @Override
+    public int forEachFor(String username, boolean caregiver, int afterId, int limit,
+                          Consumer<AppointmentRecord> consumer) throws SQLException {
+        return withConnection(con -> {
+            int count = 0;
+            try (PreparedStatement statement =
+                         con.prepareStatement(caregiver ? SELECT_FOR_CAREGIVER : SELECT_FOR_PATIENT)) {
+                statement.setString(1, username);
+                statement.setInt(2, afterId);
+                statement.setMaxRows(limit);
+                statement.setFetchSize(FETCH_SIZE);
+                try (ResultSet rs = statement.executeQuery()) {
+                    while (rs.next()) {
+                        consumer.accept(read(rs));
+                        count++;
+                    }
+                }
+            }
+            return count;
+        });
+    }
+
+    @Override
+    public Map<String, Integer> countPerCaregiver(LocalDate from) throws SQLException {
+        return withConnection(con -> {
+            Map<String, Integer> counts = new HashMap<>();
+            try (PreparedStatement statement = con.prepareStatement(COUNT_PER_CAREGIVER)) {
+                statement.setDate(1, Date.valueOf(from));
+                try (ResultSet rs = statement.executeQuery()) {
+                    while (rs.next()) {
+                        counts.put(rs.getString(1), rs.getInt(2));
+                    }
+                }
+            }
+            return counts;
+        });
+    }
+
+    private static AppointmentRecord read(ResultSet rs) throws SQLException {
+        return new AppointmentRecord(rs.getInt(1), rs.getDate(2).toLocalDate(), rs.getString(3), rs.getString(4),
+                rs.getString(5));
+    }
+}
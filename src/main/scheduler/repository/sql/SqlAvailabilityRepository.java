@@ -0,0 +1,169 @@
+package scheduler.repository.sql;
+
+import scheduler.repository.AppointmentRecord;
+import scheduler.repository.AvailabilityRepository;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.BiConsumer;
+
+class SqlAvailabilityRepository extends SqlRepository implements AvailabilityRepository {
+
+    private static final String INSERT = "INSERT INTO Availabilities VALUES (?, ?)";
+    private static final String INSERT_MISSING = "INSERT INTO Availabilities SELECT ?, ? WHERE NOT EXISTS " +
+            "(SELECT 1 FROM Availabilities WHERE Time = ? AND Username = ?)";
+    private static final String DELETE = "DELETE FROM Availabilities WHERE Time = ? AND Username = ?";
+    private static final String SELECT_CAREGIVERS = "SELECT A.Username FROM Availabilities AS A " +
+            "JOIN Caregivers AS C ON C.Username = A.Username WHERE A.Time = ? ORDER BY A.Username";
+    private static final String SELECT_BETWEEN = "SELECT A.Time, A.Username FROM Availabilities AS A " +
+            "JOIN Caregivers AS C ON C.Username = A.Username WHERE A.Time BETWEEN ? AND ? " +
+            "ORDER BY A.Time, A.Username";
+    private static final String SELECT_COUNTS = "SELECT Time, COUNT(*) FROM Availabilities " +
+            "WHERE Time BETWEEN ? AND ? GROUP BY Time ORDER BY Time";
+    private static final String SELECT_NEXT = "SELECT MIN(Time) FROM Availabilities WHERE Time >= ?";
+    private static final String SELECT_ALL = "SELECT Time, Username FROM Availabilities";
+
+    @Override
+    public void insert(LocalDate date, String caregiver) throws SQLException {
+        withConnection(con -> {
+            try (PreparedStatement statement = con.prepareStatement(INSERT)) {
+                statement.setDate(1, Date.valueOf(date));
+                statement.setString(2, caregiver);
+                return statement.executeUpdate();
+            }
+        });
+    }
+
+    @Override
+    public int insertMissing(String caregiver, List<LocalDate> dates) throws SQLException {
+        if (dates.isEmpty()) {
+            return 0;
+        }
+        return withConnection(con -> {
+            try (PreparedStatement statement = con.prepareStatement(INSERT_MISSING)) {
+                for (LocalDate date : dates) {
+                    statement.setDate(1, Date.valueOf(date));
+                    statement.setString(2, caregiver);
+                    statement.setDate(3, Date.valueOf(date));
+                    statement.setString(4, caregiver);
+                    statement.addBatch();
+                }
+                return count(statement.executeBatch());
+            }
+        });
+    }
+
+    @Override
+    public boolean remove(LocalDate date, String caregiver) throws SQLException {
+        // only one transaction can delete a given row, the affected row count tells who won
+        return withConnection(con -> {
+            try (PreparedStatement statement = con.prepareStatement(DELETE)) {
+                statement.setDate(1, Date.valueOf(date));
+                statement.setString(2, caregiver);
+                return statement.executeUpdate() == 1;
+            }
+        });
+    }
+
+    @Override
+    public List<String> caregiversOn(LocalDate date) throws SQLException {
+        return withConnection(con -> {
+            List<String> caregivers = new ArrayList<>();
+            try (PreparedStatement statement = con.prepareStatement(SELECT_CAREGIVERS)) {
+                statement.setDate(1, Date.valueOf(date));
+                try (ResultSet rs = statement.executeQuery()) {
+                    while (rs.next()) {
+                        caregivers.add(rs.getString(1));
+                    }
+                }
+            }
+            return caregivers;
+        });
+    }
+
+    @Override
+    public NavigableMap<LocalDate, List<String>> caregiversBetween(LocalDate from, LocalDate to)
+            throws SQLException {
+        return withConnection(con -> {
+            NavigableMap<LocalDate, List<String>> caregivers = new TreeMap<>();
+            try (PreparedStatement statement = con.prepareStatement(SELECT_BETWEEN)) {
+                statement.setDate(1, Date.valueOf(from));
+                statement.setDate(2, Date.valueOf(to));
+                try (ResultSet rs = statement.executeQuery()) {
+                    while (rs.next()) {
+                        caregivers.computeIfAbsent(rs.getDate(1).toLocalDate(), d -> new ArrayList<>())
+                                .add(rs.getString(2));
+                    }
+                }
+            }
+            return caregivers;
+        });
+    }
+
+    @Override
+    public int removeAll(List<AppointmentRecord> appointments) throws SQLException {
+        if (appointments.isEmpty()) {
+            return 0;
+        }
+        return withConnection(con -> {
+            try (PreparedStatement statement = con.prepareStatement(DELETE)) {
+                for (AppointmentRecord appointment : appointments) {
+                    statement.setDate(1, Date.valueOf(appointment.getDate()));
+                    statement.setString(2, appointment.getCaregiver());
+                    statement.addBatch();
+                }
+                return count(statement.executeBatch());
+            }
+        });
+    }
+
+    @Override
+    public NavigableMap<LocalDate, Integer> countsBetween(LocalDate from, LocalDate to) throws SQLException {
+        return withConnection(con -> {
+            NavigableMap<LocalDate, Integer> counts = new TreeMap<>();
+            try (PreparedStatement statement = con.prepareStatement(SELECT_COUNTS)) {
+                statement.setDate(1, Date.valueOf(from));
+                statement.setDate(2, Date.valueOf(to));
+                try (ResultSet rs = statement.executeQuery()) {
+                    while (rs.next()) {
+                        counts.put(rs.getDate(1).toLocalDate(), rs.getInt(2));
+                    }
+                }
+            }
+            return counts;
+        });
+    }
+
+    @Override
+    public LocalDate nextAvailable(LocalDate from) throws SQLException {
+        return withConnection(con -> {
+            try (PreparedStatement statement = con.prepareStatement(SELECT_NEXT)) {
+                statement.setDate(1, Date.valueOf(from));
+                try (ResultSet rs = statement.executeQuery()) {
+                    Date date = rs.next() ? rs.getDate(1) : null;
+                    return date == null ? null : date.toLocalDate();
+                }
+            }
+        });
+    }
+
+    @Override
+    public void forEach(BiConsumer<LocalDate, String> consumer) throws SQLException {
+        withConnection(con -> {
+            try (PreparedStatement statement = con.prepareStatement(SELECT_ALL);
+                 ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    consumer.accept(rs.getDate(1).toLocalDate(), rs.getString(2));
+                }
+            }
+            return null;
+        });
+    }
+}
@@ -0,0 +1,110 @@
+package scheduler.repository.sql;
+
+import scheduler.db.ConnectionManager;
+import scheduler.repository.AppointmentRepository;
+import scheduler.repository.AvailabilityRepository;
+import scheduler.repository.Backend;
+import scheduler.repository.HoldRepository;
+import scheduler.repository.TransactionStatus;
+import scheduler.repository.UserRepository;
+import scheduler.repository.VaccineRepository;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * The repositories on top of the JDBC database ConnectionManager points at, SQL Server by default.
+ *
+ * Outside a transaction every call borrows its own connection from the pool. Inside {@link #inTransaction}
+ * the calls on that thread share the transaction's connection.
+ */
+public class SqlBackend implements Backend {
+
+    private static final ThreadLocal<Connection> transaction = new ThreadLocal<>();
+
+    private final UserRepository patients = new SqlUserRepository("Patients");
+    private final UserRepository caregivers = new SqlUserRepository("Caregivers");
+    private final VaccineRepository vaccines = new SqlVaccineRepository();
+    private final AvailabilityRepository availabilities = new SqlAvailabilityRepository();
+    private final AppointmentRepository appointments = new SqlAppointmentRepository();
+    private final HoldRepository holds = new SqlHoldRepository();
+
+    // the connection of the transaction running on this thread, null outside a transaction
+    static Connection currentTransaction() {
+        return transaction.get();
+    }
+
+    @Override
+    public UserRepository patients() {
+        return patients;
+    }
+
+    @Override
+    public UserRepository caregivers() {
+        return caregivers;
+    }
+
+    @Override
+    public VaccineRepository vaccines() {
+        return vaccines;
+    }
+
+    @Override
+    public AvailabilityRepository availabilities() {
+        return availabilities;
+    }
+
+    @Override
+    public AppointmentRepository appointments() {
+        return appointments;
+    }
+
+    @Override
+    public HoldRepository holds() {
+        return holds;
+    }
+
+    @Override
+    public <T> T inTransaction(Work<T> work) throws SQLException {
+        if (transaction.get() != null) {
+            throw new IllegalStateException("Transactions cannot be nested");
+        }
+        ConnectionManager cm = new ConnectionManager();
+        Connection con = cm.createConnection();
+        if (con == null) {
+            throw new SQLException("Could not obtain a connection");
+        }
+        transaction.set(con);
+        try {
+            con.setAutoCommit(false);
+            TransactionStatus status = new TransactionStatus();
+            T result = work.run(status);
+            if (status.isRollbackOnly()) {
+                con.rollback();
+            } else {
+                con.commit();
+            }
+            return result;
+        } catch (SQLException | RuntimeException e) {
+            try {
+                con.rollback();
+            } catch (SQLException rollbackFailure) {
+                e.addSuppressed(rollbackFailure);
+            }
+            throw e;
+        } finally {
+            transaction.remove();
+            cm.closeConnection();
+        }
+    }
+
+    @Override
+    public boolean isJdbc() {
+        return true;
+    }
+
+    @Override
+    public void shutdown() {
+        ConnectionManager.shutdown();
+    }
+}
@@ -0,0 +1,83 @@
+package scheduler.repository.sql;
+
+import scheduler.repository.HoldRecord;
+import scheduler.repository.HoldRepository;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+class SqlHoldRepository extends SqlRepository implements HoldRepository {
+
+    private static final String INSERT = "INSERT INTO Holds VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String SELECT = "SELECT Token, appoID, Time, Patient, Caregiver, Vaccine, ExpiresAt " +
+            "FROM Holds WHERE Token = ?";
+    private static final String DELETE = "DELETE FROM Holds WHERE Token = ?";
+    private static final String SELECT_EXPIRED = "SELECT Token, appoID, Time, Patient, Caregiver, Vaccine, " +
+            "ExpiresAt FROM Holds WHERE ExpiresAt < ? ORDER BY ExpiresAt";
+
+    @Override
+    public void insert(HoldRecord hold) throws SQLException {
+        withConnection(con -> {
+            try (PreparedStatement statement = con.prepareStatement(INSERT)) {
+                statement.setString(1, hold.getToken());
+                statement.setInt(2, hold.getAppointmentId());
+                statement.setDate(3, Date.valueOf(hold.getDate()));
+                statement.setString(4, hold.getPatient());
+                statement.setString(5, hold.getCaregiver());
+                statement.setString(6, hold.getVaccine());
+                statement.setTimestamp(7, Timestamp.from(hold.getExpiresAt()));
+                return statement.executeUpdate();
+            }
+        });
+    }
+
+    @Override
+    public HoldRecord find(String token) throws SQLException {
+        return withConnection(con -> {
+            try (PreparedStatement statement = con.prepareStatement(SELECT)) {
+                statement.setString(1, token);
+                try (ResultSet rs = statement.executeQuery()) {
+                    return rs.next() ? read(rs) : null;
+                }
+            }
+        });
+    }
+
+    @Override
+    public boolean delete(String token) throws SQLException {
+        return withConnection(con -> {
+            try (PreparedStatement statement = con.prepareStatement(DELETE)) {
+                statement.setString(1, token);
+                return statement.executeUpdate() == 1;
+            }
+        });
+    }
+
+    @Override
+    public List<HoldRecord> findExpired(Instant now, int limit) throws SQLException {
+        return withConnection(con -> {
+            List<HoldRecord> holds = new ArrayList<>();
+            try (PreparedStatement statement = con.prepareStatement(SELECT_EXPIRED)) {
+                statement.setTimestamp(1, Timestamp.from(now));
+                statement.setMaxRows(limit);
+                try (ResultSet rs = statement.executeQuery()) {
+                    while (rs.next()) {
+                        holds.add(read(rs));
+                    }
+                }
+            }
+            return holds;
+        });
+    }
+
+    private static HoldRecord read(ResultSet rs) throws SQLException {
+        return new HoldRecord(rs.getString(1), rs.getInt(2), rs.getDate(3).toLocalDate(), rs.getString(4),
+                rs.getString(5), rs.getString(6), rs.getTimestamp(7).toInstant());
+    }
+}
@@ -0,0 +1,46 @@
+package scheduler.repository.sql;
+
+import scheduler.db.ConnectionManager;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Connection handling shared by the SQL repositories.
+ */
+abstract class SqlRepository {
+
+    interface SqlWork<T> {
+        T run(Connection con) throws SQLException;
+    }
+
+    // uses the connection of the current transaction, or borrows one for just this call
+    static <T> T withConnection(SqlWork<T> work) throws SQLException {
+        Connection con = SqlBackend.currentTransaction();
+        if (con != null) {
+            return work.run(con);
+        }
+        ConnectionManager cm = new ConnectionManager();
+        con = cm.createConnection();
+        if (con == null) {
+            throw new SQLException("Could not obtain a connection");
+        }
+        try {
+            return work.run(con);
+        } finally {
+            cm.closeConnection();
+        }
+    }
+
+    // how many statements of a batch changed a row, some drivers only report that a statement succeeded
+    static int count(int[] counts) {
+        int changed = 0;
+        for (int count : counts) {
+            if (count > 0 || count == Statement.SUCCESS_NO_INFO) {
+                changed++;
+            }
+        }
+        return changed;
+    }
+}
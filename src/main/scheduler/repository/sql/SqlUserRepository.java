@@ -0,0 +1,104 @@
+package scheduler.repository.sql;
+
+import scheduler.repository.UserRecord;
+import scheduler.repository.UserRepository;
+import scheduler.util.Util;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+class SqlUserRepository extends SqlRepository implements UserRepository {
+
+    private final String select;
+    private final String exists;
+    private final String insert;
+    private final String insertMissing;
+    private final String selectNames;
+
+    // the table name is one of two constants, never user input
+    SqlUserRepository(String table) {
+        this.select = "SELECT Username, Salt, Hash FROM " + table + " WHERE Username = ?";
+        this.exists = "SELECT 1 FROM " + table + " WHERE Username = ?";
+        this.insert = "INSERT INTO " + table + " VALUES (?, ?, ?)";
+        this.insertMissing = "INSERT INTO " + table + " SELECT ?, ?, ? WHERE NOT EXISTS " +
+                "(SELECT 1 FROM " + table + " WHERE Username = ?)";
+        this.selectNames = "SELECT Username FROM " + table;
+    }
+
+    @Override
+    public UserRecord find(String username) throws SQLException {
+        return withConnection(con -> {
+            try (PreparedStatement statement = con.prepareStatement(select)) {
+                statement.setString(1, username);
+                try (ResultSet rs = statement.executeQuery()) {
+                    if (!rs.next()) {
+                        return null;
+                    }
+                    // we need to call Util.trim() to get rid of the paddings,
+                    // try to remove the use of Util.trim() and you'll see :)
+                    return new UserRecord(rs.getString(1), rs.getBytes(2), Util.trim(rs.getBytes(3)));
+                }
+            }
+        });
+    }
+
+    @Override
+    public boolean exists(String username) throws SQLException {
+        return withConnection(con -> {
+            try (PreparedStatement statement = con.prepareStatement(exists)) {
+                statement.setString(1, username);
+                try (ResultSet rs = statement.executeQuery()) {
+                    return rs.next();
+                }
+            }
+        });
+    }
+
+    @Override
+    public void insert(UserRecord user) throws SQLException {
+        withConnection(con -> {
+            try (PreparedStatement statement = con.prepareStatement(insert)) {
+                statement.setString(1, user.getUsername());
+                statement.setBytes(2, user.getSalt());
+                statement.setBytes(3, user.getHash());
+                return statement.executeUpdate();
+            }
+        });
+    }
+
+    @Override
+    public int insertMissing(List<UserRecord> users) throws SQLException {
+        if (users.isEmpty()) {
+            return 0;
+        }
+        return withConnection(con -> {
+            try (PreparedStatement statement = con.prepareStatement(insertMissing)) {
+                for (UserRecord user : users) {
+                    statement.setString(1, user.getUsername());
+                    statement.setBytes(2, user.getSalt());
+                    statement.setBytes(3, user.getHash());
+                    statement.setString(4, user.getUsername());
+                    statement.addBatch();
+                }
+                return count(statement.executeBatch());
+            }
+        });
+    }
+
+    @Override
+    public List<String> usernames() throws SQLException {
+        return withConnection(con -> {
+            List<String> names = new ArrayList<>();
+            try (PreparedStatement statement = con.prepareStatement(selectNames);
+                 ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    names.add(rs.getString(1));
+                }
+            }
+            return names;
+        });
+    }
+}
@@ -0,0 +1,106 @@
+package scheduler.repository.sql;
+
+import scheduler.repository.VaccineRepository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.TreeMap;
+
+class SqlVaccineRepository extends SqlRepository implements VaccineRepository {
+
+    private static final String SELECT_DOSES = "SELECT Doses FROM Vaccines WHERE Name = ?";
+    private static final String SELECT_ALL = "SELECT Name, Doses FROM Vaccines ORDER BY Name";
+    private static final String INSERT = "INSERT INTO Vaccines VALUES (?, ?)";
+    // relative to the stored value, so concurrent updates do not overwrite each other
+    private static final String ADD_DOSES = "UPDATE Vaccines SET Doses = Doses + ? WHERE Name = ?";
+    // the condition keeps concurrent updates from taking the count below zero
+    private static final String TAKE_DOSES = "UPDATE Vaccines SET Doses = Doses - ? WHERE Name = ? AND Doses >= ?";
+    private static final String INSERT_MISSING = "INSERT INTO Vaccines SELECT ?, ? WHERE NOT EXISTS " +
+            "(SELECT 1 FROM Vaccines WHERE Name = ?)";
+
+    @Override
+    public Integer findDoses(String name) throws SQLException {
+        return withConnection(con -> {
+            try (PreparedStatement statement = con.prepareStatement(SELECT_DOSES)) {
+                statement.setString(1, name);
+                try (ResultSet rs = statement.executeQuery()) {
+                    return rs.next() ? rs.getInt(1) : null;
+                }
+            }
+        });
+    }
+
+    @Override
+    public Map<String, Integer> findAll() throws SQLException {
+        return withConnection(con -> {
+            Map<String, Integer> doses = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            try (PreparedStatement statement = con.prepareStatement(SELECT_ALL);
+                 ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    doses.put(rs.getString(1), rs.getInt(2));
+                }
+            }
+            return doses;
+        });
+    }
+
+    @Override
+    public void insert(String name, int doses) throws SQLException {
+        withConnection(con -> {
+            try (PreparedStatement statement = con.prepareStatement(INSERT)) {
+                statement.setString(1, name);
+                statement.setInt(2, doses);
+                return statement.executeUpdate();
+            }
+        });
+    }
+
+    @Override
+    public void addDoses(String name, int doses) throws SQLException {
+        withConnection(con -> {
+            try (PreparedStatement statement = con.prepareStatement(ADD_DOSES)) {
+                statement.setInt(1, doses);
+                statement.setString(2, name);
+                return statement.executeUpdate();
+            }
+        });
+    }
+
+    @Override
+    public boolean takeDoses(String name, int doses) throws SQLException {
+        return withConnection(con -> {
+            try (PreparedStatement statement = con.prepareStatement(TAKE_DOSES)) {
+                statement.setInt(1, doses);
+                statement.setString(2, name);
+                statement.setInt(3, doses);
+                return statement.executeUpdate() == 1;
+            }
+        });
+    }
+
+    @Override
+    public void addOrInsert(Map<String, Integer> doses) throws SQLException {
+        if (doses.isEmpty()) {
+            return;
+        }
+        withConnection(con -> {
+            try (PreparedStatement add = con.prepareStatement(ADD_DOSES);
+                 PreparedStatement insert = con.prepareStatement(INSERT_MISSING)) {
+                for (Map.Entry<String, Integer> entry : doses.entrySet()) {
+                    add.setInt(1, entry.getValue());
+                    add.setString(2, entry.getKey());
+                    add.addBatch();
+                    insert.setString(1, entry.getKey());
+                    insert.setInt(2, entry.getValue());
+                    insert.setString(3, entry.getKey());
+                    insert.addBatch();
+                }
+                // existing vaccines are topped up first, the insert then only creates the missing ones
+                add.executeBatch();
+                return count(insert.executeBatch());
+            }
+        });
+    }
+}
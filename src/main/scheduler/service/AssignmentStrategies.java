@@ -0,0 +1,93 @@
+package scheduler.service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The built-in {@link AssignmentStrategy} implementations.
+ */
+public final class AssignmentStrategies {
+
+    private AssignmentStrategies() {
+    }
+
+    /**
+     * Looks a strategy up by name: least_booked, round_robin, random or first (alphabetical).
+     */
+    public static AssignmentStrategy forName(String name) {
+        switch (name.toLowerCase(Locale.ROOT)) {
+            case "least_booked":
+                return new LeastBooked();
+            case "round_robin":
+                return new RoundRobin();
+            case "random":
+                return new RandomAmongAvailable();
+            case "first":
+                return new Alphabetical();
+            default:
+                throw new IllegalArgumentException("Unknown assignment strategy: " + name);
+        }
+    }
+
+    /**
+     * Caregivers with the fewest upcoming and in-flight appointments first, ties in random order.
+     */
+    public static class LeastBooked implements AssignmentStrategy {
+        @Override
+        public List<String> order(LocalDate date, List<String> candidates, CaregiverLoad load) {
+            List<String> ordered = new ArrayList<>(candidates);
+            // shuffle first so the stable sort breaks ties differently for concurrent reservations
+            Collections.shuffle(ordered, ThreadLocalRandom.current());
+            // sort on a snapshot, loads changed by concurrent reservations mid-sort would break the comparator
+            Map<String, Integer> loads = new HashMap<>();
+            for (String caregiver : ordered) {
+                loads.put(caregiver, load.get(caregiver));
+            }
+            ordered.sort(Comparator.comparingInt(loads::get));
+            return ordered;
+        }
+    }
+
+    /**
+     * Starts each reservation one caregiver further along the list than the previous one.
+     */
+    public static class RoundRobin implements AssignmentStrategy {
+        private final AtomicInteger next = new AtomicInteger();
+
+        @Override
+        public List<String> order(LocalDate date, List<String> candidates, CaregiverLoad load) {
+            List<String> ordered = new ArrayList<>(candidates);
+            if (!ordered.isEmpty()) {
+                Collections.rotate(ordered, -Math.floorMod(next.getAndIncrement(), ordered.size()));
+            }
+            return ordered;
+        }
+    }
+
+    public static class RandomAmongAvailable implements AssignmentStrategy {
+        @Override
+        public List<String> order(LocalDate date, List<String> candidates, CaregiverLoad load) {
+            List<String> ordered = new ArrayList<>(candidates);
+            Collections.shuffle(ordered, ThreadLocalRandom.current());
+            return ordered;
+        }
+    }
+
+    /**
+     * The original behaviour: always the alphabetically first caregiver.
+     */
+    public static class Alphabetical implements AssignmentStrategy {
+        @Override
+        public List<String> order(LocalDate date, List<String> candidates, CaregiverLoad load) {
+            return candidates;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package scheduler.service;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Decides in which order reserve tries the caregivers that are available on a date. Spreading concurrent
+ * reservations over different caregivers keeps them from fighting over the same Availabilities row.
+ */
+public interface AssignmentStrategy {
+
+    /**
+     * Returns the candidates in the order they should be tried. The given list must not be modified.
+     */
+    List<String> order(LocalDate date, List<String> candidates, CaregiverLoad load);
+}
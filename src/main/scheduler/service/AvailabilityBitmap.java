@@ -0,0 +1,91 @@
+package scheduler.service;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Availability as bits, one per day counted from a base date.
+ *
+ * Every caregiver has a bitset of the days they are free, and an aggregated bitset has a day set while at
+ * least one caregiver is free on it, so the next open day is a single bit scan. A count per day tells when
+ * the last caregiver of a day is gone. Days before the base date are in the past and days after the horizon
+ * are too far out to be worth a bit each, neither is stored.
+ *
+ * Not thread safe on its own, the availability index updates it under its lock.
+ */
+class AvailabilityBitmap {
+
+    static final int HORIZON_DAYS = 3660;
+
+    private final long baseDay;
+    private final Map<String, BitSet> caregivers = new HashMap<>();
+    private final BitSet any = new BitSet();
+    private int[] counts = new int[64];
+
+    AvailabilityBitmap(LocalDate base) {
+        this.baseDay = base.toEpochDay();
+    }
+
+    private int index(LocalDate date) {
+        long offset = date.toEpochDay() - baseDay;
+        return offset < 0 || offset >= HORIZON_DAYS ? -1 : (int) offset;
+    }
+
+    void set(LocalDate date, String caregiver) {
+        int day = index(date);
+        if (day < 0) {
+            return;
+        }
+        BitSet days = caregivers.computeIfAbsent(caregiver, c -> new BitSet());
+        if (days.get(day)) {
+            return;
+        }
+        days.set(day);
+        if (day >= counts.length) {
+            counts = Arrays.copyOf(counts, Math.max(day + 1, counts.length * 2));
+        }
+        counts[day]++;
+        any.set(day);
+    }
+
+    void clear(LocalDate date, String caregiver) {
+        int day = index(date);
+        if (day < 0) {
+            return;
+        }
+        BitSet days = caregivers.get(caregiver);
+        if (days == null || !days.get(day)) {
+            return;
+        }
+        days.clear(day);
+        if (days.isEmpty()) {
+            caregivers.remove(caregiver);
+        }
+        if (--counts[day] == 0) {
+            any.clear(day);
+        }
+    }
+
+    /**
+     * Returns the first day on or after {@code from} with a free caregiver, or null if there is none.
+     */
+    LocalDate nextFree(LocalDate from) {
+        // anything before the base date starts the scan at the base date
+        int start = from.toEpochDay() < baseDay ? 0 : index(from);
+        if (start < 0) {
+            return null;
+        }
+        int day = any.nextSetBit(start);
+        return day < 0 ? null : LocalDate.ofEpochDay(baseDay + day);
+    }
+
+    /**
+     * Returns the first day after the horizon.
+     */
+    LocalDate getEnd() {
+        return LocalDate.ofEpochDay(baseDay + HORIZON_DAYS);
+    }
+}
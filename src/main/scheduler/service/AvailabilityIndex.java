@@ -0,0 +1,185 @@
+package scheduler.service;
+
+import scheduler.repository.Repositories;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An in-memory copy of the Availabilities table, keyed by date with the caregivers of each date kept sorted.
+ *
+ * The index is loaded at startup and updated in place whenever this process adds or removes an availability.
+ * A periodic reload picks up changes made by other processes. Every in-place change bumps the version, and a
+ * reload only replaces the index if no change happened while it was reading the table, so a reload can never
+ * undo a local update.
+ *
+ * A day bitmap of the same data is kept next to the map, so the next open day is found with a bit scan.
+ */
+public class AvailabilityIndex {
+
+    private static final int MAX_RELOAD_ATTEMPTS = 3;
+
+    private static final AvailabilityIndex instance = new AvailabilityIndex();
+
+    private final Object lock = new Object();
+    private volatile ConcurrentSkipListMap<LocalDate, ConcurrentSkipListSet<String>> slots =
+            new ConcurrentSkipListMap<>();
+    private AvailabilityBitmap bitmap = new AvailabilityBitmap(LocalDate.now());
+    private volatile boolean loaded = false;
+    private long version = 0;
+    private ScheduledExecutorService reloader = null;
+
+    private AvailabilityIndex() {
+    }
+
+    public static AvailabilityIndex getInstance() {
+        return instance;
+    }
+
+    /**
+     * Loads the index and reloads it every {@code reloadSeconds} seconds, a non-positive period disables reloading.
+     */
+    public void start(long reloadSeconds) throws SQLException {
+        reload();
+        if (reloadSeconds > 0) {
+            synchronized (lock) {
+                if (reloader == null) {
+                    reloader = Executors.newSingleThreadScheduledExecutor(r -> {
+                        Thread t = new Thread(r, "availability-index-reloader");
+                        t.setDaemon(true);
+                        return t;
+                    });
+                    reloader.scheduleWithFixedDelay(() -> {
+                        try {
+                            reload();
+                        } catch (SQLException e) {
+                            System.out.println("Error occurred when reloading availabilities");
+                        }
+                    }, reloadSeconds, reloadSeconds, TimeUnit.SECONDS);
+                }
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the index from the table. Returns false if local updates kept racing with the reload.
+     */
+    public boolean reload() throws SQLException {
+        for (int attempt = 0; attempt < MAX_RELOAD_ATTEMPTS; attempt++) {
+            long before;
+            synchronized (lock) {
+                before = version;
+            }
+            ConcurrentSkipListMap<LocalDate, ConcurrentSkipListSet<String>> fresh = readTable();
+            // past days drop out of the bitmap as the base moves forward with every reload
+            AvailabilityBitmap freshBitmap = new AvailabilityBitmap(LocalDate.now());
+            for (Map.Entry<LocalDate, ConcurrentSkipListSet<String>> entry : fresh.entrySet()) {
+                for (String caregiver : entry.getValue()) {
+                    freshBitmap.set(entry.getKey(), caregiver);
+                }
+            }
+            synchronized (lock) {
+                if (version == before) {
+                    slots = fresh;
+                    bitmap = freshBitmap;
+                    version++;
+                    loaded = true;
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private ConcurrentSkipListMap<LocalDate, ConcurrentSkipListSet<String>> readTable() throws SQLException {
+        ConcurrentSkipListMap<LocalDate, ConcurrentSkipListSet<String>> fresh = new ConcurrentSkipListMap<>();
+        Repositories.availabilities().forEach((date, caregiver) ->
+                fresh.computeIfAbsent(date, d -> new ConcurrentSkipListSet<>()).add(caregiver));
+        return fresh;
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public long getVersion() {
+        synchronized (lock) {
+            return version;
+        }
+    }
+
+    public void add(LocalDate date, String caregiver) {
+        synchronized (lock) {
+            slots.computeIfAbsent(date, d -> new ConcurrentSkipListSet<>()).add(caregiver);
+            bitmap.set(date, caregiver);
+            version++;
+        }
+    }
+
+    public void remove(LocalDate date, String caregiver) {
+        synchronized (lock) {
+            NavigableSet<String> caregivers = slots.get(date);
+            if (caregivers != null) {
+                caregivers.remove(caregiver);
+                if (caregivers.isEmpty()) {
+                    slots.remove(date);
+                }
+            }
+            bitmap.clear(date, caregiver);
+            version++;
+        }
+    }
+
+    /**
+     * Returns the caregivers available on the date in alphabetical order.
+     */
+    public List<String> caregiversOn(LocalDate date) {
+        NavigableSet<String> caregivers = slots.get(date);
+        if (caregivers == null) {
+            return Collections.emptyList();
+        }
+        return new ArrayList<>(caregivers);
+    }
+
+    /**
+     * Returns the number of caregivers available per date between {@code from} and {@code to} inclusive.
+     */
+    public NavigableMap<LocalDate, Integer> countsBetween(LocalDate from, LocalDate to) {
+        NavigableMap<LocalDate, Integer> counts = new TreeMap<>();
+        for (Map.Entry<LocalDate, ConcurrentSkipListSet<String>> entry : slots.subMap(from, true, to, true).entrySet()) {
+            int count = entry.getValue().size();
+            // a date stays in the map for a moment after its last caregiver is removed
+            if (count > 0) {
+                counts.put(entry.getKey(), count);
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Returns the first date on or after {@code from} with at least one caregiver available, or null.
+     */
+    public LocalDate nextAvailable(LocalDate from) {
+        synchronized (lock) {
+            LocalDate date = bitmap.nextFree(from);
+            if (date != null) {
+                return date;
+            }
+            // beyond the bitmap's horizon the sorted map is scanned instead
+            LocalDate end = bitmap.getEnd();
+            return slots.ceilingKey(from.isAfter(end) ? from : end);
+        }
+    }
+}
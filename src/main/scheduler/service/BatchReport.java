@@ -0,0 +1,98 @@
+package scheduler.service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The outcome of one {@link BatchReservation} run.
+ */
+public class BatchReport {
+    private static final int MAX_REPORTED_LINES = 20;
+    private static final int MAX_REPORTED_UNPLACED = 100;
+
+    private final long startNanos = System.nanoTime();
+    private long endNanos = -1;
+    private int requests = 0;
+    private int placed = 0;
+    private int attempts = 0;
+    // by line number, patients are placed in a different order than they appear in the file
+    private final Map<Integer, String> unplaced = new TreeMap<>();
+    private int malformed = 0;
+    private final List<Integer> malformedLines = new ArrayList<>();
+
+    void malformed(int lineNumber) {
+        malformed++;
+        if (malformedLines.size() < MAX_REPORTED_LINES) {
+            malformedLines.add(lineNumber);
+        }
+    }
+
+    void requested() {
+        requests++;
+    }
+
+    void attempted() {
+        attempts++;
+    }
+
+    void placed(int count) {
+        placed += count;
+    }
+
+    void unplaced(int lineNumber, String patient, String vaccine, LocalDate from, LocalDate to, String reason) {
+        unplaced.put(lineNumber,
+                "line " + lineNumber + " " + patient + " " + vaccine + " " + from + ".." + to + ": " + reason);
+    }
+
+    void finish() {
+        endNanos = System.nanoTime();
+    }
+
+    public int getPlaced() {
+        return placed;
+    }
+
+    public int getUnplaced() {
+        return unplaced.size();
+    }
+
+    public double getElapsedSeconds() {
+        long end = endNanos < 0 ? System.nanoTime() : endNanos;
+        return (end - startNanos) / 1e9;
+    }
+
+    public double getBookingsPerSecond() {
+        double seconds = getElapsedSeconds();
+        return seconds == 0 ? 0 : placed / seconds;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Placed %d of %d patients in %.2fs (%.0f bookings/s, %d attempt(s))%n", placed,
+                requests, getElapsedSeconds(), getBookingsPerSecond(), attempts));
+        sb.append("Unplaced: ").append(unplaced.size());
+        int reported = 0;
+        for (String line : unplaced.values()) {
+            if (reported++ == MAX_REPORTED_UNPLACED) {
+                break;
+            }
+            sb.append(System.lineSeparator()).append("  ").append(line);
+        }
+        if (unplaced.size() > MAX_REPORTED_UNPLACED) {
+            sb.append(System.lineSeparator()).append("  ... and ")
+                    .append(unplaced.size() - MAX_REPORTED_UNPLACED).append(" more");
+        }
+        sb.append(System.lineSeparator()).append("Malformed lines: ").append(malformed);
+        if (!malformedLines.isEmpty()) {
+            sb.append(" ").append(malformedLines);
+            if (malformed > malformedLines.size()) {
+                sb.append(" ...");
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,295 @@
+package scheduler.service;
+
+import scheduler.model.Vaccine;
+import scheduler.repository.AppointmentRecord;
+import scheduler.repository.Repositories;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Books a file of pre-registered patients for a mass vaccination day in one go.
+ *
+ * Every line is
+ *   patient,vaccine,from[,to]
+ * asking for any date from..to (just {@code from} without a {@code to}). Blank lines and lines starting with #
+ * are ignored.
+ *
+ * The availability and the doses of the whole window are read once and the patients are placed in memory:
+ * those with the fewest open dates go first so flexible patients do not take the only dates of others, and
+ * each gets the earliest open date of their window with the least booked caregiver on it. The appointments,
+ * the availability deletes and the dose decrements are then written in one transaction of batched
+ * statements. If a concurrent reservation took a slot or a dose in the meantime, the transaction rolls back
+ * and the placement is redone from fresh data.
+ */
+public class BatchReservation {
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final ScheduleSearch scheduleSearch;
+    private final AvailabilityIndex availabilityIndex = AvailabilityIndex.getInstance();
+    private final CaregiverLoad caregiverLoad = CaregiverLoad.getInstance();
+    private final DoseInventory doseInventory = DoseInventory.getInstance();
+
+    public BatchReservation(ScheduleSearch scheduleSearch) {
+        this.scheduleSearch = scheduleSearch;
+    }
+
+    public BatchReport reserve(BufferedReader reader) throws IOException, SQLException {
+        BatchReport report = new BatchReport();
+        List<Request> requests = new ArrayList<>();
+        LocalDate today = LocalDate.now();
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            Request request = parse(line, lineNumber, today, report);
+            if (request == null) {
+                continue;
+            }
+            report.requested();
+            // an unknown patient would fail the whole transaction on the foreign key
+            if (!UsernameRegistry.patients().exists(request.patient)) {
+                unplaced(report, request, "no such patient");
+            } else if (request.to.isBefore(today)) {
+                unplaced(report, request, "the dates are in the past");
+            } else {
+                requests.add(request);
+            }
+        }
+
+        for (int attempt = 1; ; attempt++) {
+            report.attempted();
+            Plan plan = place(requests, today);
+            if (write(plan, today)) {
+                report.placed(plan.appointments.size());
+                for (Map.Entry<Request, String> entry : plan.unplaced.entrySet()) {
+                    unplaced(report, entry.getKey(), entry.getValue());
+                }
+                break;
+            }
+            if (attempt == MAX_ATTEMPTS) {
+                throw new SQLException("Availability kept changing while booking the batch, nothing was booked");
+            }
+        }
+        report.finish();
+        return report;
+    }
+
+    private Request parse(String line, int lineNumber, LocalDate today, BatchReport report) {
+        String trimmed = line.trim();
+        if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+            return null;
+        }
+        String[] fields = trimmed.split(",", -1);
+        if (fields.length < 3 || fields.length > 4 || fields[0].trim().isEmpty() || fields[1].trim().isEmpty()) {
+            report.malformed(lineNumber);
+            return null;
+        }
+        LocalDate from;
+        LocalDate to;
+        try {
+            from = LocalDate.parse(fields[2].trim());
+            to = fields.length == 4 ? LocalDate.parse(fields[3].trim()) : from;
+        } catch (DateTimeParseException e) {
+            // a header line such as patient,vaccine,from,to is not worth reporting
+            if (lineNumber != 1) {
+                report.malformed(lineNumber);
+            }
+            return null;
+        }
+        if (to.isBefore(from)) {
+            report.malformed(lineNumber);
+            return null;
+        }
+        // nobody can be booked into the past
+        if (from.isBefore(today)) {
+            from = today;
+        }
+        return new Request(lineNumber, fields[0].trim(), fields[1].trim(), from, to);
+    }
+
+    // assigns dates and caregivers in memory, nothing is written yet
+    private Plan place(List<Request> requests, LocalDate today) throws SQLException {
+        Plan plan = new Plan();
+        if (requests.isEmpty()) {
+            return plan;
+        }
+        LocalDate from = requests.get(0).from;
+        LocalDate to = requests.get(0).to;
+        for (Request request : requests) {
+            from = request.from.isBefore(from) ? request.from : from;
+            to = request.to.isAfter(to) ? request.to : to;
+        }
+        NavigableMap<LocalDate, List<String>> free = Repositories.availabilities().caregiversBetween(from, to);
+        Map<String, Integer> doses = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        doses.putAll(scheduleSearch.vaccineDoses());
+        Map<String, Integer> bookedInBatch = new HashMap<>();
+
+        // the fewest open dates first, file order among equals
+        Map<Request, Integer> openDates = new HashMap<>();
+        for (Request request : requests) {
+            openDates.put(request, free.subMap(request.from, true, request.to, true).size());
+        }
+        List<Request> ordered = new ArrayList<>(requests);
+        ordered.sort(Comparator.comparingInt(openDates::get));
+
+        for (Request request : ordered) {
+            Integer left = doses.get(request.vaccine);
+            if (left == null) {
+                plan.unplaced.put(request, "no such vaccine");
+                continue;
+            }
+            if (left <= 0) {
+                plan.unplaced.put(request, "no doses left");
+                continue;
+            }
+            Iterator<Map.Entry<LocalDate, List<String>>> days =
+                    free.subMap(request.from, true, request.to, true).entrySet().iterator();
+            if (!days.hasNext()) {
+                plan.unplaced.put(request, "no open slot");
+                continue;
+            }
+            // read the entry before removing it, the map may reuse it for the next date
+            Map.Entry<LocalDate, List<String>> day = days.next();
+            LocalDate date = day.getKey();
+            List<String> caregivers = day.getValue();
+            String caregiver = leastBooked(caregivers, bookedInBatch);
+            caregivers.remove(caregiver);
+            if (caregivers.isEmpty()) {
+                days.remove();
+            }
+            bookedInBatch.merge(caregiver, 1, Integer::sum);
+            doses.put(request.vaccine, left - 1);
+            plan.appointments.add(new AppointmentRecord(Repositories.appointments().nextId(), date,
+                    request.patient, caregiver, request.vaccine));
+        }
+        return plan;
+    }
+
+    // the caregivers come in alphabetical order, so ties go to the alphabetically first
+    private String leastBooked(List<String> caregivers, Map<String, Integer> bookedInBatch) {
+        String best = null;
+        int bestLoad = Integer.MAX_VALUE;
+        for (String caregiver : caregivers) {
+            int load = caregiverLoad.get(caregiver) + bookedInBatch.getOrDefault(caregiver, 0);
+            if (load < bestLoad) {
+                best = caregiver;
+                bestLoad = load;
+            }
+        }
+        return best;
+    }
+
+    // returns false if the plan was rolled back because a slot or a dose was gone
+    private boolean write(Plan plan, LocalDate today) throws SQLException {
+        List<AppointmentRecord> appointments = plan.appointments;
+        if (appointments.isEmpty()) {
+            return true;
+        }
+        Map<String, Integer> perVaccine = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (AppointmentRecord appointment : appointments) {
+            perVaccine.merge(appointment.getVaccine(), 1, Integer::sum);
+        }
+        List<AppointmentRecord> taken = new ArrayList<>();
+        boolean committed = false;
+        try {
+            committed = Repositories.get().inTransaction(status -> {
+                if (Repositories.availabilities().removeAll(appointments) != appointments.size()) {
+                    status.setRollbackOnly();
+                    return false;
+                }
+                if (!takeDoses(appointments, perVaccine, taken)) {
+                    status.setRollbackOnly();
+                    return false;
+                }
+                Repositories.appointments().insertAll(appointments);
+                return true;
+            });
+        } finally {
+            for (AppointmentRecord appointment : taken) {
+                if (committed) {
+                    doseInventory.commitTake(appointment.getVaccine(), appointment.getId());
+                } else {
+                    doseInventory.abortTake(appointment.getVaccine(), appointment.getId());
+                }
+            }
+        }
+        if (!committed) {
+            return false;
+        }
+        for (AppointmentRecord appointment : appointments) {
+            availabilityIndex.remove(appointment.getDate(), appointment.getCaregiver());
+            if (!appointment.getDate().isBefore(today)) {
+                caregiverLoad.increment(appointment.getCaregiver());
+            }
+        }
+        if (!doseInventory.isEnabled()) {
+            for (String vaccineName : perVaccine.keySet()) {
+                Vaccine.invalidate(vaccineName);
+            }
+        }
+        return true;
+    }
+
+    // one relative update per vaccine, or one journaled take per appointment with the dose inventory
+    private boolean takeDoses(List<AppointmentRecord> appointments, Map<String, Integer> perVaccine,
+                              List<AppointmentRecord> taken) throws SQLException {
+        if (!doseInventory.isEnabled()) {
+            for (Map.Entry<String, Integer> entry : perVaccine.entrySet()) {
+                if (!Repositories.vaccines().takeDoses(entry.getKey(), entry.getValue())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        for (AppointmentRecord appointment : appointments) {
+            try {
+                if (!doseInventory.beginTake(appointment.getVaccine(), appointment.getId())) {
+                    return false;
+                }
+            } catch (IOException e) {
+                throw new SQLException("Could not write the dose journal", e);
+            }
+            taken.add(appointment);
+        }
+        return true;
+    }
+
+    private static void unplaced(BatchReport report, Request request, String reason) {
+        report.unplaced(request.line, request.patient, request.vaccine, request.from, request.to, reason);
+    }
+
+    private static class Request {
+        private final int line;
+        private final String patient;
+        private final String vaccine;
+        private final LocalDate from;
+        private final LocalDate to;
+
+        Request(int line, String patient, String vaccine, LocalDate from, LocalDate to) {
+            this.line = line;
+            this.patient = patient;
+            this.vaccine = vaccine;
+            this.from = from;
+            this.to = to;
+        }
+    }
+
+    private static class Plan {
+        private final List<AppointmentRecord> appointments = new ArrayList<>();
+        private final Map<Request, String> unplaced = new LinkedHashMap<>();
+    }
+}
@@ -0,0 +1,246 @@
+package scheduler.service;
+
+import scheduler.model.Vaccine;
+import scheduler.repository.Repositories;
+import scheduler.repository.UserRecord;
+import scheduler.util.CredentialEngine;
+import scheduler.util.PasswordPolicy;
+import scheduler.util.Util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Streams a CSV file of users and vaccines into the database.
+ *
+ * Every line is one of
+ *   patient,username,password
+ *   caregiver,username,password
+ *   vaccine,name,doses
+ * Blank lines and lines starting with # are ignored. Passwords are hashed on the shared credential engine while
+ * the file is being read, and rows are written in batches of {@code chunkSize}, one transaction per batch.
+ * Only a few hashes are kept in flight, and while the engine is overloaded the import writes what it has
+ * instead of queueing more, so logins are not starved by an import.
+ * Users that already exist are skipped, doses of existing vaccines are added to the inventory. Users whose
+ * password fails the strong password guidelines of create_patient are not imported and reported by line.
+ */
+public class BulkImporter {
+
+    // enough to keep every hashing thread busy without taking much of the engine's queue
+    private static final int HASHES_IN_FLIGHT = 2 * Runtime.getRuntime().availableProcessors();
+    private static final long OVERLOADED_BACKOFF_MILLIS = 50;
+
+    private final CredentialEngine credentialEngine = CredentialEngine.getInstance();
+    private final int chunkSize;
+    private final PrintStream progress;
+
+    public BulkImporter(int chunkSize, PrintStream progress) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive!");
+        }
+        this.chunkSize = chunkSize;
+        this.progress = progress;
+    }
+
+    public ImportStats importCsv(BufferedReader reader) throws IOException, SQLException {
+        ImportStats stats = new ImportStats();
+        // rows are hashed ahead of the writer, in file order
+        Deque<Row> pending = new ArrayDeque<>();
+        List<Row> chunk = new ArrayList<>(chunkSize);
+        try {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                Row row = parse(line, lineNumber, stats);
+                if (row == null) {
+                    continue;
+                }
+                while (pending.size() >= HASHES_IN_FLIGHT) {
+                    take(pending, chunk, stats);
+                }
+                startHash(row, pending, chunk, stats);
+                pending.add(row);
+            }
+            while (!pending.isEmpty()) {
+                take(pending, chunk, stats);
+            }
+            if (!chunk.isEmpty()) {
+                write(chunk, stats);
+            }
+        } finally {
+            for (Row row : pending) {
+                if (row.hashing != null) {
+                    row.hashing.cancel(true);
+                }
+            }
+        }
+        stats.finish();
+        return stats;
+    }
+
+    // hands the password of a user row to the engine, finishing earlier rows while it is overloaded
+    private void startHash(Row row, Deque<Row> pending, List<Row> chunk, ImportStats stats) throws SQLException {
+        if (row.password == null) {
+            return;
+        }
+        row.salt = Util.generateSalt();
+        while (true) {
+            try {
+                row.hashing = credentialEngine.hashAsync(row.password, row.salt);
+                return;
+            } catch (CredentialEngine.OverloadedException e) {
+                if (!pending.isEmpty()) {
+                    take(pending, chunk, stats);
+                } else {
+                    try {
+                        Thread.sleep(OVERLOADED_BACKOFF_MILLIS);
+                    } catch (InterruptedException interrupted) {
+                        Thread.currentThread().interrupt();
+                        throw new SQLException("Import interrupted", interrupted);
+                    }
+                }
+            }
+        }
+    }
+
+    private void take(Deque<Row> pending, List<Row> chunk, ImportStats stats) throws SQLException {
+        Row row = pending.poll();
+        if (row.hashing != null) {
+            try {
+                row.hash = row.hashing.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Import interrupted", e);
+            } catch (ExecutionException e) {
+                // reported like a failed write, the chunks written so far stay
+                throw new SQLException("Could not hash the password on line " + row.lineNumber, e.getCause());
+            }
+        }
+        chunk.add(row);
+        if (chunk.size() >= chunkSize) {
+            write(chunk, stats);
+            chunk.clear();
+        }
+    }
+
+    private Row parse(String line, int lineNumber, ImportStats stats) {
+        String trimmed = line.trim();
+        if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+            return null;
+        }
+        String[] fields = trimmed.split(",", -1);
+        if (fields.length != 3 || fields[1].trim().isEmpty()) {
+            stats.malformed(lineNumber);
+            return null;
+        }
+        String type = fields[0].trim().toLowerCase(Locale.ROOT);
+        String name = fields[1].trim();
+        String value = fields[2].trim();
+        switch (type) {
+            case "patient":
+            case "caregiver":
+                if (value.isEmpty()) {
+                    stats.malformed(lineNumber);
+                    return null;
+                }
+                if (PasswordPolicy.check(value) != null) {
+                    stats.weakPassword(lineNumber);
+                    return null;
+                }
+                return new Row(lineNumber, type, name, value);
+            case "vaccine":
+                try {
+                    int doses = Integer.parseInt(value);
+                    if (doses < 0) {
+                        stats.malformed(lineNumber);
+                        return null;
+                    }
+                    return new Row(lineNumber, type, name, doses);
+                } catch (NumberFormatException e) {
+                    stats.malformed(lineNumber);
+                    return null;
+                }
+            default:
+                // a header line such as type,name,value is not worth reporting
+                if (lineNumber != 1) {
+                    stats.malformed(lineNumber);
+                }
+                return null;
+        }
+    }
+
+    private void write(List<Row> chunk, ImportStats stats) throws SQLException {
+        List<UserRecord> patients = new ArrayList<>();
+        List<UserRecord> caregivers = new ArrayList<>();
+        // the same vaccine may appear several times in a chunk, add its doses up first
+        Map<String, Integer> vaccineDoses = new LinkedHashMap<>();
+        for (Row row : chunk) {
+            if (row.type.equals("vaccine")) {
+                vaccineDoses.merge(row.name, row.doses, Integer::sum);
+            } else if (row.type.equals("patient")) {
+                patients.add(new UserRecord(row.name, row.salt, row.hash));
+            } else {
+                caregivers.add(new UserRecord(row.name, row.salt, row.hash));
+            }
+        }
+        int[] added = Repositories.get().inTransaction(status -> {
+            int patientsAdded = Repositories.patients().insertMissing(patients);
+            int caregiversAdded = Repositories.caregivers().insertMissing(caregivers);
+            Repositories.vaccines().addOrInsert(vaccineDoses);
+            return new int[]{patientsAdded, caregiversAdded};
+        });
+        // every imported name exists now, whether we inserted it or it was there already
+        for (UserRecord patient : patients) {
+            UsernameRegistry.patients().add(patient.getUsername());
+        }
+        for (UserRecord caregiver : caregivers) {
+            UsernameRegistry.caregivers().add(caregiver.getUsername());
+        }
+        for (String vaccineName : vaccineDoses.keySet()) {
+            Vaccine.invalidate(vaccineName);
+            Waitlist.getInstance().publish(CapacityEvent.doses(vaccineName));
+        }
+        stats.written(chunk.size(), added[0], patients.size() - added[0],
+                added[1], caregivers.size() - added[1], vaccineDoses.size());
+        progress.println(stats.progressLine());
+    }
+
+    private static class Row {
+        private final int lineNumber;
+        private final String type;
+        private final String name;
+        private final String password;
+        private final int doses;
+        private byte[] salt;
+        private byte[] hash;
+        private Future<byte[]> hashing;
+
+        Row(int lineNumber, String type, String name, String password) {
+            this.lineNumber = lineNumber;
+            this.type = type;
+            this.name = name;
+            this.password = password;
+            this.doses = 0;
+        }
+
+        Row(int lineNumber, String type, String name, int doses) {
+            this.lineNumber = lineNumber;
+            this.type = type;
+            this.name = name;
+            this.password = null;
+            this.doses = doses;
+        }
+    }
+}
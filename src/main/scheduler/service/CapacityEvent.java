@@ -0,0 +1,45 @@
+package scheduler.service;
+
+import java.time.LocalDate;
+
+/**
+ * Capacity that has just become available: doses of a vaccine, caregiver slots on some dates, or both.
+ * A null vaccine matches every vaccine and null dates match every date.
+ */
+public class CapacityEvent {
+    private final String vaccine;
+    private final LocalDate from;
+    private final LocalDate to;
+
+    private CapacityEvent(String vaccine, LocalDate from, LocalDate to) {
+        this.vaccine = vaccine;
+        this.from = from;
+        this.to = to;
+    }
+
+    public static CapacityEvent doses(String vaccine) {
+        return new CapacityEvent(vaccine, null, null);
+    }
+
+    public static CapacityEvent slots(LocalDate from, LocalDate to) {
+        return new CapacityEvent(null, from, to);
+    }
+
+    /**
+     * A slot and a dose that were given back together, e.g. by a cancellation.
+     */
+    public static CapacityEvent freed(LocalDate date, String vaccine) {
+        return new CapacityEvent(vaccine, date, date);
+    }
+
+    /**
+     * Returns true if a patient waiting for the vaccine on a date between {@code from} and {@code to} could use
+     * this capacity.
+     */
+    boolean matches(String vaccine, LocalDate from, LocalDate to) {
+        if (this.vaccine != null && !this.vaccine.equalsIgnoreCase(vaccine)) {
+            return false;
+        }
+        return this.from == null || (!this.from.isAfter(to) && !this.to.isBefore(from));
+    }
+}
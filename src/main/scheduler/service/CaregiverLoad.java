@@ -0,0 +1,53 @@
+package scheduler.service;
+
+import scheduler.repository.Repositories;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Per-caregiver count of upcoming appointments, including reservations that are still in flight.
+ *
+ * Loaded from Appointments at startup and kept up to date by the reservation service. It only steers which
+ * caregiver a reservation tries first, so it is fine for it to drift from the table between restarts.
+ */
+public class CaregiverLoad {
+
+    private static final CaregiverLoad instance = new CaregiverLoad();
+
+    private final Map<String, AtomicInteger> counts = new ConcurrentHashMap<>();
+
+    private CaregiverLoad() {
+    }
+
+    public static CaregiverLoad getInstance() {
+        return instance;
+    }
+
+    public void load() throws SQLException {
+        Map<String, Integer> upcoming = Repositories.appointments().countPerCaregiver(LocalDate.now());
+        for (Map.Entry<String, Integer> entry : upcoming.entrySet()) {
+            counter(entry.getKey()).set(entry.getValue());
+        }
+    }
+
+    private AtomicInteger counter(String caregiver) {
+        return counts.computeIfAbsent(caregiver, c -> new AtomicInteger());
+    }
+
+    public int get(String caregiver) {
+        AtomicInteger count = counts.get(caregiver);
+        return count == null ? 0 : count.get();
+    }
+
+    public void increment(String caregiver) {
+        counter(caregiver).incrementAndGet();
+    }
+
+    public void decrement(String caregiver) {
+        counter(caregiver).updateAndGet(c -> Math.max(0, c - 1));
+    }
+}
@@ -0,0 +1,142 @@
+package scheduler.service;
+
+import scheduler.db.JdbcStats;
+import scheduler.util.LatencyHistogram;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency and JDBC usage per command.
+ *
+ * Every command is timed from dispatch to return, and the connections, statements and JDBC time it used on
+ * its thread are added to the totals of that command. The report can be printed with the stats command and
+ * written to a file periodically.
+ */
+public class CommandMetrics {
+
+    private static final CommandMetrics instance = new CommandMetrics();
+
+    private final Map<String, Record> records = new ConcurrentHashMap<>();
+    private ScheduledExecutorService dumper = null;
+
+    private CommandMetrics() {
+    }
+
+    public static CommandMetrics getInstance() {
+        return instance;
+    }
+
+    /**
+     * Starts timing a command on the current thread.
+     */
+    public Timer start(String command) {
+        JdbcStats.reset();
+        return new Timer(command);
+    }
+
+    public void clear() {
+        records.clear();
+    }
+
+    /**
+     * Writes the report to {@code file} every {@code periodSeconds} seconds.
+     */
+    public synchronized void startDump(Path file, long periodSeconds) {
+        if (dumper != null || periodSeconds <= 0) {
+            return;
+        }
+        dumper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "command-metrics-dump");
+            t.setDaemon(true);
+            return t;
+        });
+        dumper.scheduleWithFixedDelay(() -> {
+            try {
+                dump(file);
+            } catch (IOException e) {
+                System.out.println("Error occurred when writing " + file);
+            }
+        }, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+    }
+
+    // writes to a temporary file first so readers never see half a report
+    public void dump(Path file) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(tmp, StandardCharsets.UTF_8))) {
+            out.println("# " + LocalDateTime.now());
+            out.print(report());
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public String report() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-26s %8s %9s %9s %9s %9s %8s %8s %9s%n", "command", "count", "p50(ms)",
+                "p99(ms)", "max(ms)", "mean(ms)", "conn/op", "stmt/op", "jdbc(ms)"));
+        for (Map.Entry<String, Record> entry : new TreeMap<>(records).entrySet()) {
+            Record r = entry.getValue();
+            long count = r.latency.getCount();
+            if (count == 0) {
+                continue;
+            }
+            sb.append(String.format("%-26s %8d %9.3f %9.3f %9.3f %9.3f %8.2f %8.2f %9.3f%n", entry.getKey(), count,
+                    r.latency.percentile(0.50) / 1e3, r.latency.percentile(0.99) / 1e3, r.latency.getMax() / 1e3,
+                    r.latency.getMean() / 1e3, (double) r.connections.sum() / count,
+                    (double) r.statements.sum() / count, r.jdbcNanos.sum() / 1e6 / count));
+        }
+        return sb.toString();
+    }
+
+    private static class Record {
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder connections = new LongAdder();
+        private final LongAdder statements = new LongAdder();
+        private final LongAdder jdbcNanos = new LongAdder();
+    }
+
+    /**
+     * Measures one command, call {@link #stop()} when it returns.
+     */
+    public class Timer {
+        private final String command;
+        private final long startNanos = System.nanoTime();
+        private boolean cancelled = false;
+
+        private Timer(String command) {
+            this.command = command;
+        }
+
+        /**
+         * Drops the measurement, e.g. for a command name that turned out to be invalid.
+         */
+        public void cancel() {
+            cancelled = true;
+        }
+
+        public void stop() {
+            if (cancelled) {
+                return;
+            }
+            long elapsed = System.nanoTime() - startNanos;
+            JdbcStats jdbc = JdbcStats.reset();
+            Record record = records.computeIfAbsent(command, c -> new Record());
+            record.latency.record(elapsed / 1000);
+            record.connections.add(jdbc.getConnections());
+            record.statements.add(jdbc.getStatements());
+            record.jdbcNanos.add(jdbc.getNanos());
+        }
+    }
+}
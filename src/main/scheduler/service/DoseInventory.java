@@ -0,0 +1,626 @@
+package scheduler.service;
+
+import scheduler.db.ConnectionManager;
+import scheduler.util.StripedCounter;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory dose counts with write-behind to the Vaccines table.
+ *
+ * Reservations take doses from striped counters without touching the database. Every change is appended to
+ * a journal file first and summed up per vaccine, and a background flusher writes the sums as
+ * {@code Doses = Doses + ?} in one transaction, together with the journal position it covers, then reloads
+ * the counts so changes made outside this process (bulk imports) are picked up.
+ *
+ * Doses taken by a reservation or given back by a cancellation are journaled as an intent before the
+ * appointment transaction commits and resolved after it, so on restart an intent without its outcome is
+ * settled by looking at the Appointments table. Nothing is lost or counted twice if the process dies at any
+ * point.
+ *
+ * The counts are owned by this process, so only one scheduler may run against a database with write-behind
+ * on, which is why it is off unless asked for. Configured with DoseWriteBehind (default false), DoseJournal
+ * (default dose-journal.log) and DoseFlushMs (default 1000).
+ */
+public class DoseInventory {
+
+    private static final String SELECT_DOSES = "SELECT Name, Doses FROM Vaccines";
+    private static final String SELECT_DOSE = "SELECT Name, Doses FROM Vaccines WHERE Name = ?";
+    private static final String ADD_DOSES = "UPDATE Vaccines SET Doses = Doses + ? WHERE Name = ?";
+    private static final String SELECT_FLUSHED = "SELECT FlushedSeq FROM DoseJournal WHERE Node = ?";
+    private static final String UPDATE_FLUSHED = "UPDATE DoseJournal SET FlushedSeq = ? WHERE Node = ?";
+    private static final String INSERT_FLUSHED = "INSERT INTO DoseJournal VALUES (?, ?)";
+    // a hold owns its dose just like the appointment it turns into
+    private static final String APPOINTMENT_EXISTS = "SELECT 1 FROM Appointments WHERE appoID = ? " +
+            "UNION ALL SELECT 1 FROM Holds WHERE appoID = ?";
+
+    // journal records, tab separated:
+    //   T seq appoID vaccine        a reservation is about to take a dose
+    //   R seq appoID vaccine        a cancellation is about to give a dose back
+    //   A seq T|R appoID            the transaction behind the intent rolled back
+    //   D seq vaccine delta [appoID] a change of the counts, resolves the intent of appoID if present
+    private static final String TAKE = "T";
+    private static final String RETURN = "R";
+    private static final String ABORT = "A";
+    private static final String DELTA = "D";
+
+    private static final DoseInventory instance = new DoseInventory();
+
+    private final Map<String, Stock> stocks = new ConcurrentHashMap<>();
+    // appends and counter updates share the lock, the flusher takes it exclusively to cut a consistent snapshot
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final boolean configured =
+            Boolean.parseBoolean(System.getenv().getOrDefault("DoseWriteBehind", "false"));
+    private final Path journalPath = Paths.get(System.getenv().getOrDefault("DoseJournal", "dose-journal.log"));
+    // the row in DoseJournal that records how far this journal has been flushed
+    private final String node = journalPath.toAbsolutePath().toString();
+    private FileChannel journal = null;
+    private ScheduledExecutorService flusher = null;
+    private volatile boolean enabled = false;
+
+    private DoseInventory() {
+    }
+
+    public static DoseInventory getInstance() {
+        return instance;
+    }
+
+    /**
+     * Settles what the previous run left in the journal, loads the counts and starts the flusher. If this
+     * fails the inventory stays disabled and every dose change goes to the database directly.
+     */
+    public synchronized void start(long flushMillis) throws SQLException, IOException {
+        if (!configured || enabled) {
+            return;
+        }
+        recover();
+        reconcile(selectDoses(null));
+        journal = FileChannel.open(journalPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        enabled = true;
+
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "dose-inventory-flusher");
+            t.setDaemon(true);
+            return t;
+        });
+        flusher.scheduleWithFixedDelay(() -> {
+            try {
+                flush();
+            } catch (SQLException | IOException e) {
+                System.out.println("Error occurred when flushing doses, will retry");
+            }
+        }, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the doses left, or -1 if the vaccine does not exist.
+     */
+    public int available(String vaccineName) throws SQLException {
+        Stock stock = stock(vaccineName);
+        return stock == null ? -1 : (int) stock.available.sum();
+    }
+
+    /**
+     * Returns the doses left per vaccine, sorted by name.
+     */
+    public Map<String, Integer> snapshot() {
+        Map<String, Integer> doses = new TreeMap<>();
+        for (Stock stock : stocks.values()) {
+            doses.put(stock.name, (int) stock.available.sum());
+        }
+        return doses;
+    }
+
+    /**
+     * Called after a new vaccine was inserted into the table.
+     */
+    public void register(String vaccineName, int doses) {
+        Stock stock = new Stock(vaccineName);
+        stock.available.reset(doses);
+        // a stock loaded from the table in the meantime already includes the new row
+        stocks.putIfAbsent(key(vaccineName), stock);
+    }
+
+    /**
+     * Takes a dose for the appointment about to be inserted. Must be followed by {@link #commitTake} or
+     * {@link #abortTake}. Returns false if no dose is left.
+     */
+    public boolean beginTake(String vaccineName, int appointmentId) throws SQLException, IOException {
+        Stock stock = stock(vaccineName);
+        if (stock == null) {
+            return false;
+        }
+        lock.readLock().lock();
+        try {
+            if (!stock.available.tryDecrement()) {
+                return false;
+            }
+            try {
+                append(TAKE, String.valueOf(appointmentId), stock.name);
+            } catch (IOException e) {
+                stock.available.add(1);
+                throw e;
+            }
+            stock.reserved.incrementAndGet();
+            inFlight.incrementAndGet();
+            return true;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void commitTake(String vaccineName, int appointmentId) {
+        Stock stock = stocks.get(key(vaccineName));
+        lock.readLock().lock();
+        try {
+            appendQuietly(DELTA, stock.name, -1, appointmentId);
+            stock.pending.add(-1);
+            stock.reserved.decrementAndGet();
+            inFlight.decrementAndGet();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void abortTake(String vaccineName, int appointmentId) {
+        Stock stock = stocks.get(key(vaccineName));
+        lock.readLock().lock();
+        try {
+            appendQuietly(ABORT, TAKE, appointmentId);
+            stock.reserved.decrementAndGet();
+            stock.available.add(1);
+            inFlight.decrementAndGet();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Announces that the appointment is about to be cancelled. Must be followed by {@link #commitReturn} or
+     * {@link #abortReturn}.
+     */
+    public void beginReturn(String vaccineName, int appointmentId) throws SQLException, IOException {
+        Stock stock = stock(vaccineName);
+        if (stock == null) {
+            throw new SQLException("Unknown vaccine " + vaccineName);
+        }
+        lock.readLock().lock();
+        try {
+            append(RETURN, String.valueOf(appointmentId), stock.name);
+            inFlight.incrementAndGet();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void commitReturn(String vaccineName, int appointmentId) {
+        Stock stock = stocks.get(key(vaccineName));
+        lock.readLock().lock();
+        try {
+            appendQuietly(DELTA, stock.name, 1, appointmentId);
+            stock.pending.add(1);
+            stock.available.add(1);
+            inFlight.decrementAndGet();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void abortReturn(int appointmentId) {
+        lock.readLock().lock();
+        try {
+            appendQuietly(ABORT, RETURN, appointmentId);
+            inFlight.decrementAndGet();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds doses to an existing vaccine, returns false if the vaccine does not exist.
+     */
+    public boolean add(String vaccineName, int doses) throws SQLException, IOException {
+        if (doses <= 0) {
+            throw new IllegalArgumentException("Argument cannot be negative!");
+        }
+        Stock stock = stock(vaccineName);
+        if (stock == null) {
+            return false;
+        }
+        lock.readLock().lock();
+        try {
+            append(DELTA, stock.name, String.valueOf(doses));
+            stock.pending.add(doses);
+            stock.available.add(doses);
+            return true;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Removes doses from a vaccine, all or nothing. Returns false if not enough doses are left.
+     */
+    public boolean remove(String vaccineName, int doses) throws SQLException, IOException {
+        Stock stock = stock(vaccineName);
+        if (stock == null) {
+            return false;
+        }
+        lock.readLock().lock();
+        try {
+            int taken = 0;
+            while (taken < doses && stock.available.tryDecrement()) {
+                taken++;
+            }
+            if (taken < doses) {
+                stock.available.add(taken);
+                return false;
+            }
+            try {
+                append(DELTA, stock.name, String.valueOf(-doses));
+            } catch (IOException e) {
+                stock.available.add(doses);
+                throw e;
+            }
+            stock.pending.add(-doses);
+            return true;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Writes the pending changes to the database and reloads the counts.
+     */
+    public void flush() throws SQLException, IOException {
+        if (!enabled) {
+            return;
+        }
+        Map<String, Long> deltas = new HashMap<>();
+        long flushedSeq;
+        lock.writeLock().lock();
+        try {
+            for (Stock stock : stocks.values()) {
+                long delta = stock.pending.sumThenReset();
+                if (delta != 0) {
+                    deltas.put(stock.name, delta);
+                }
+            }
+            flushedSeq = sequence.get();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Map<String, Integer> doses;
+        try {
+            doses = writeAndReload(deltas, flushedSeq);
+        } catch (SQLException e) {
+            // put the changes back, the next round writes them together with the newer ones
+            for (Map.Entry<String, Long> entry : deltas.entrySet()) {
+                stocks.get(key(entry.getKey())).pending.add(entry.getValue());
+            }
+            throw e;
+        }
+        reconcile(doses);
+
+        lock.writeLock().lock();
+        try {
+            // everything in the journal is in the database and no intent is open, start over
+            if (sequence.get() == flushedSeq && inFlight.get() == 0) {
+                journal.truncate(0);
+            }
+            journal.force(false);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Stops the flusher and writes what is left.
+     */
+    public synchronized void shutdown() {
+        if (!enabled) {
+            return;
+        }
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(10, TimeUnit.SECONDS);
+            flush();
+            enabled = false;
+            journal.close();
+        } catch (SQLException | IOException e) {
+            System.out.println("Error occurred when flushing doses, the journal will be replayed on restart");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static String key(String vaccineName) {
+        // names compare case-insensitively in the database
+        return vaccineName.toLowerCase(Locale.ROOT);
+    }
+
+    // loads a vaccine added by another process since the counts were last reloaded
+    private Stock stock(String vaccineName) throws SQLException {
+        Stock stock = stocks.get(key(vaccineName));
+        if (stock != null) {
+            return stock;
+        }
+        Map<String, Integer> doses = selectDoses(vaccineName);
+        if (doses.isEmpty()) {
+            return null;
+        }
+        Map.Entry<String, Integer> row = doses.entrySet().iterator().next();
+        Stock loaded = new Stock(row.getKey());
+        loaded.available.reset(row.getValue());
+        stock = stocks.putIfAbsent(key(vaccineName), loaded);
+        return stock != null ? stock : loaded;
+    }
+
+    // the counts are the table plus what has not been flushed yet minus what is being booked right now
+    private void reconcile(Map<String, Integer> doses) {
+        lock.writeLock().lock();
+        try {
+            for (Map.Entry<String, Integer> entry : doses.entrySet()) {
+                Stock stock = stocks.computeIfAbsent(key(entry.getKey()), k -> new Stock(entry.getKey()));
+                stock.available.reset((int) (entry.getValue() + stock.pending.sum() - stock.reserved.get()));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void append(String... fields) throws IOException {
+        StringBuilder sb = new StringBuilder(fields[0]).append('\t').append(sequence.incrementAndGet());
+        for (int i = 1; i < fields.length; i++) {
+            sb.append('\t').append(fields[i]);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(sb.append('\n').toString().getBytes(StandardCharsets.UTF_8));
+        // written straight to the file, a record survives the process once this returns
+        while (buffer.hasRemaining()) {
+            journal.write(buffer);
+        }
+    }
+
+    // the outcome of an intent, if it cannot be written the intent is settled from Appointments on restart
+    private void appendQuietly(String type, String vaccineName, int delta, int appointmentId) {
+        try {
+            append(type, vaccineName, String.valueOf(delta), String.valueOf(appointmentId));
+        } catch (IOException e) {
+            System.out.println("Error occurred when writing the dose journal");
+        }
+    }
+
+    private void appendQuietly(String type, String intent, int appointmentId) {
+        try {
+            append(type, intent, String.valueOf(appointmentId));
+        } catch (IOException e) {
+            System.out.println("Error occurred when writing the dose journal");
+        }
+    }
+
+    // applies the journal entries the database has not seen yet, then empties the journal
+    private void recover() throws SQLException, IOException {
+        if (!Files.exists(journalPath)) {
+            return;
+        }
+        ConnectionManager cm = new ConnectionManager();
+        Connection con = cm.createConnection();
+        if (con == null) {
+            throw new SQLException("Could not obtain a connection");
+        }
+        try {
+            long flushed = selectFlushed(con);
+            long last = flushed;
+            Map<String, Long> deltas = new HashMap<>();
+            Map<String, String[]> intents = new LinkedHashMap<>();
+            try (BufferedReader reader = Files.newBufferedReader(journalPath, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] fields = line.split("\t");
+                    long seq;
+                    try {
+                        seq = Long.parseLong(fields[1]);
+                    } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+                        // the last line may have been cut off by the crash
+                        continue;
+                    }
+                    last = Math.max(last, seq);
+                    switch (fields[0]) {
+                        case TAKE:
+                        case RETURN:
+                            if (fields.length == 4) {
+                                intents.put(fields[0] + fields[2], fields);
+                            }
+                            break;
+                        case ABORT:
+                            if (fields.length == 4) {
+                                intents.remove(fields[2] + fields[3]);
+                            }
+                            break;
+                        case DELTA:
+                            if (fields.length < 4) {
+                                break;
+                            }
+                            long delta = Long.parseLong(fields[3]);
+                            if (fields.length == 5) {
+                                intents.remove((delta < 0 ? TAKE : RETURN) + fields[4]);
+                            }
+                            if (seq > flushed) {
+                                deltas.merge(fields[2], delta, Long::sum);
+                            }
+                            break;
+                        default:
+                            break;
+                    }
+                }
+            }
+            // an intent without an outcome died with the process, the appointment and hold tables tell how it ended
+            for (String[] intent : intents.values()) {
+                boolean exists = appointmentExists(con, Integer.parseInt(intent[2]));
+                if (intent[0].equals(TAKE) && exists) {
+                    deltas.merge(intent[3], -1L, Long::sum);
+                } else if (intent[0].equals(RETURN) && !exists) {
+                    deltas.merge(intent[3], 1L, Long::sum);
+                }
+            }
+            con.setAutoCommit(false);
+            try {
+                writeDeltas(con, deltas, last);
+                con.commit();
+            } catch (SQLException e) {
+                con.rollback();
+                throw e;
+            }
+            sequence.set(last);
+            if (!deltas.isEmpty()) {
+                System.out.println("Recovered " + deltas.size() + " unflushed dose changes from the journal");
+            }
+        } finally {
+            cm.closeConnection();
+        }
+        Files.write(journalPath, new byte[0]);
+    }
+
+    private long selectFlushed(Connection con) throws SQLException {
+        try (PreparedStatement statement = con.prepareStatement(SELECT_FLUSHED)) {
+            statement.setString(1, node);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0;
+            }
+        }
+    }
+
+    private static boolean appointmentExists(Connection con, int appointmentId) throws SQLException {
+        try (PreparedStatement statement = con.prepareStatement(APPOINTMENT_EXISTS)) {
+            statement.setInt(1, appointmentId);
+            statement.setInt(2, appointmentId);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    // the deltas and the journal position they cover commit together, so no change is applied twice
+    private void writeDeltas(Connection con, Map<String, Long> deltas, long flushedSeq) throws SQLException {
+        if (!deltas.isEmpty()) {
+            try (PreparedStatement statement = con.prepareStatement(ADD_DOSES)) {
+                for (Map.Entry<String, Long> entry : deltas.entrySet()) {
+                    statement.setLong(1, entry.getValue());
+                    statement.setString(2, entry.getKey());
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+        }
+        try (PreparedStatement statement = con.prepareStatement(UPDATE_FLUSHED)) {
+            statement.setLong(1, flushedSeq);
+            statement.setString(2, node);
+            if (statement.executeUpdate() == 1) {
+                return;
+            }
+        }
+        try (PreparedStatement statement = con.prepareStatement(INSERT_FLUSHED)) {
+            statement.setString(1, node);
+            statement.setLong(2, flushedSeq);
+            statement.executeUpdate();
+        }
+    }
+
+    // writes the deltas and reads the counts back in one transaction
+    private Map<String, Integer> writeAndReload(Map<String, Long> deltas, long flushedSeq) throws SQLException {
+        ConnectionManager cm = new ConnectionManager();
+        Connection con = cm.createConnection();
+        if (con == null) {
+            throw new SQLException("Could not obtain a connection");
+        }
+        try {
+            con.setAutoCommit(false);
+            writeDeltas(con, deltas, flushedSeq);
+            Map<String, Integer> doses = new HashMap<>();
+            try (Statement statement = con.createStatement();
+                 ResultSet rs = statement.executeQuery(SELECT_DOSES)) {
+                while (rs.next()) {
+                    doses.put(rs.getString(1), rs.getInt(2));
+                }
+            }
+            con.commit();
+            return doses;
+        } catch (SQLException e) {
+            con.rollback();
+            throw e;
+        } finally {
+            cm.closeConnection();
+        }
+    }
+
+    // every vaccine, or only the named one
+    private static Map<String, Integer> selectDoses(String vaccineName) throws SQLException {
+        ConnectionManager cm = new ConnectionManager();
+        Connection con = cm.createConnection();
+        if (con == null) {
+            throw new SQLException("Could not obtain a connection");
+        }
+        try (PreparedStatement statement = con.prepareStatement(vaccineName == null ? SELECT_DOSES : SELECT_DOSE)) {
+            if (vaccineName != null) {
+                statement.setString(1, vaccineName);
+            }
+            Map<String, Integer> doses = new HashMap<>();
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    doses.put(rs.getString(1), rs.getInt(2));
+                }
+            }
+            return doses;
+        } finally {
+            cm.closeConnection();
+        }
+    }
+
+    private static class Stock {
+        // the name as stored in the table
+        private final String name;
+        private final StripedCounter available = new StripedCounter(Runtime.getRuntime().availableProcessors());
+        // changes not written to the table yet
+        private final LongAdder pending = new LongAdder();
+        // doses taken by reservations that have not committed yet
+        private final AtomicInteger reserved = new AtomicInteger();
+
+        Stock(String name) {
+            this.name = name;
+        }
+    }
+}
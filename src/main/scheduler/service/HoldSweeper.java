@@ -0,0 +1,70 @@
+package scheduler.service;
+
+import java.sql.SQLException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Releases expired holds in the background, one transaction per batch, until none are left.
+ */
+public class HoldSweeper {
+
+    private final ReservationService reservationService;
+    private final int batchSize;
+    private ScheduledExecutorService sweeper = null;
+
+    public HoldSweeper(ReservationService reservationService, int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive!");
+        }
+        this.reservationService = reservationService;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Sweeps right away and then every {@code periodMillis} milliseconds.
+     */
+    public synchronized void start(long periodMillis) {
+        if (sweeper != null) {
+            return;
+        }
+        sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "hold-sweeper");
+            t.setDaemon(true);
+            return t;
+        });
+        sweeper.scheduleWithFixedDelay(() -> {
+            try {
+                sweep();
+            } catch (SQLException e) {
+                System.out.println("Error occurred when releasing expired holds");
+            }
+        }, 0, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Releases every hold that has expired so far and returns how many there were.
+     */
+    public int sweep() throws SQLException {
+        int total = 0;
+        int released;
+        do {
+            released = reservationService.releaseExpired(batchSize);
+            total += released;
+        } while (released == batchSize);
+        return total;
+    }
+
+    public synchronized void shutdown() {
+        if (sweeper != null) {
+            sweeper.shutdown();
+            try {
+                sweeper.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            sweeper = null;
+        }
+    }
+}
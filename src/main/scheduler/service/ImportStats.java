@@ -0,0 +1,94 @@
+package scheduler.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Counters for one run of the {@link BulkImporter}.
+ */
+public class ImportStats {
+    private static final int MAX_REPORTED_LINES = 20;
+
+    private final long startNanos = System.nanoTime();
+    private long endNanos = -1;
+    private long rows = 0;
+    private long patientsAdded = 0;
+    private long patientsSkipped = 0;
+    private long caregiversAdded = 0;
+    private long caregiversSkipped = 0;
+    private long vaccinesUpdated = 0;
+    private long malformed = 0;
+    private final List<Integer> malformedLines = new ArrayList<>();
+    private long weakPasswords = 0;
+    private final List<Integer> weakPasswordLines = new ArrayList<>();
+
+    void malformed(int lineNumber) {
+        malformed++;
+        if (malformedLines.size() < MAX_REPORTED_LINES) {
+            malformedLines.add(lineNumber);
+        }
+    }
+
+    void weakPassword(int lineNumber) {
+        weakPasswords++;
+        if (weakPasswordLines.size() < MAX_REPORTED_LINES) {
+            weakPasswordLines.add(lineNumber);
+        }
+    }
+
+    void written(int rows, int patientsAdded, int patientsSkipped, int caregiversAdded, int caregiversSkipped,
+                 int vaccinesUpdated) {
+        this.rows += rows;
+        this.patientsAdded += patientsAdded;
+        this.patientsSkipped += patientsSkipped;
+        this.caregiversAdded += caregiversAdded;
+        this.caregiversSkipped += caregiversSkipped;
+        this.vaccinesUpdated += vaccinesUpdated;
+    }
+
+    void finish() {
+        endNanos = System.nanoTime();
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public double getElapsedSeconds() {
+        long end = endNanos < 0 ? System.nanoTime() : endNanos;
+        return (end - startNanos) / 1e9;
+    }
+
+    public double getRowsPerSecond() {
+        double seconds = getElapsedSeconds();
+        return seconds == 0 ? 0 : rows / seconds;
+    }
+
+    String progressLine() {
+        return String.format("Imported %d rows (%.0f rows/s)", rows, getRowsPerSecond());
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Imported %d rows in %.2fs (%.0f rows/s)%n", rows, getElapsedSeconds(),
+                getRowsPerSecond()));
+        sb.append(String.format("Patients: %d added, %d already existed%n", patientsAdded, patientsSkipped));
+        sb.append(String.format("Caregivers: %d added, %d already existed%n", caregiversAdded, caregiversSkipped));
+        sb.append(String.format("Vaccines updated: %d%n", vaccinesUpdated));
+        appendLines(sb, "Malformed lines: ", malformed, malformedLines);
+        sb.append(System.lineSeparator());
+        appendLines(sb, "Weak passwords: ", weakPasswords, weakPasswordLines);
+        return sb.toString();
+    }
+
+    private static void appendLines(StringBuilder sb, String label, long count, List<Integer> lines) {
+        sb.append(label).append(count);
+        if (!lines.isEmpty()) {
+            sb.append(" ").append(lines);
+            if (count > lines.size()) {
+                sb.append(" ...");
+            }
+        }
+    }
+}
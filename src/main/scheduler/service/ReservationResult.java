@@ -0,0 +1,70 @@
+package scheduler.service;
+
+import java.time.Instant;
+
+/**
+ * The outcome of a single reservation, hold or confirm attempt.
+ */
+public class ReservationResult {
+
+    public enum Status {
+        BOOKED,
+        HELD,
+        NO_SLOT,
+        NO_DOSE,
+        NO_HOLD,
+        EXPIRED
+    }
+
+    private final Status status;
+    private final int appointmentId;
+    private final String caregiver;
+    private final String holdToken;
+    private final Instant expiresAt;
+
+    private ReservationResult(Status status, int appointmentId, String caregiver, String holdToken,
+                              Instant expiresAt) {
+        this.status = status;
+        this.appointmentId = appointmentId;
+        this.caregiver = caregiver;
+        this.holdToken = holdToken;
+        this.expiresAt = expiresAt;
+    }
+
+    static ReservationResult booked(int appointmentId, String caregiver) {
+        return new ReservationResult(Status.BOOKED, appointmentId, caregiver, null, null);
+    }
+
+    static ReservationResult held(int appointmentId, String caregiver, String holdToken, Instant expiresAt) {
+        return new ReservationResult(Status.HELD, appointmentId, caregiver, holdToken, expiresAt);
+    }
+
+    static ReservationResult failed(Status status) {
+        return new ReservationResult(status, -1, null, null, null);
+    }
+
+    // Getters
+    public Status getStatus() {
+        return status;
+    }
+
+    public boolean isBooked() {
+        return status == Status.BOOKED;
+    }
+
+    public int getAppointmentId() {
+        return appointmentId;
+    }
+
+    public String getCaregiver() {
+        return caregiver;
+    }
+
+    public String getHoldToken() {
+        return holdToken;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+}
@@ -0,0 +1,341 @@
+package scheduler.service;
+
+import scheduler.model.Vaccine;
+import scheduler.repository.AppointmentRecord;
+import scheduler.repository.HoldRecord;
+import scheduler.repository.Repositories;
+
+import java.io.IOException;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Books and cancels appointments. A reservation claims a caregiver slot, takes a dose and records the
+ * appointment in one transaction, so concurrent reservations can neither oversell doses nor double-book a
+ * caregiver. A cancellation undoes all three in one transaction.
+ *
+ * A hold claims the slot and the dose the same way but records a hold instead of the appointment, confirm
+ * turns it into the appointment and {@link #releaseExpired} gives back what unconfirmed holds claimed.
+ *
+ * With the dose inventory enabled the dose is taken from memory instead and written to the Vaccines table
+ * later, the journal ties it to the appointment so a crash in between cannot lose or oversell it.
+ */
+public class ReservationService {
+
+    private final AvailabilityIndex availabilityIndex = AvailabilityIndex.getInstance();
+    private final CaregiverLoad caregiverLoad = CaregiverLoad.getInstance();
+    private final DoseInventory doseInventory = DoseInventory.getInstance();
+    private final Waitlist waitlist = Waitlist.getInstance();
+    private final AssignmentStrategy strategy;
+    private final Duration holdTtl;
+
+    /**
+     * Uses the strategy named by the AssignmentStrategy environment variable, least_booked by default, and
+     * keeps holds for HoldTtlSeconds seconds, 120 by default. Invalid values are reported and the default used.
+     */
+    public ReservationService() {
+        this(configuredStrategy(), Duration.ofSeconds(configuredHoldTtlSeconds()));
+    }
+
+    // runs while the scheduler class initializes, so a typo must not stop the process from starting
+    private static AssignmentStrategy configuredStrategy() {
+        String name = System.getenv().getOrDefault("AssignmentStrategy", "least_booked");
+        try {
+            return AssignmentStrategies.forName(name.trim());
+        } catch (IllegalArgumentException e) {
+            System.out.println("Ignoring invalid value for AssignmentStrategy: " + name);
+            return new AssignmentStrategies.LeastBooked();
+        }
+    }
+
+    private static long configuredHoldTtlSeconds() {
+        String value = System.getenv().getOrDefault("HoldTtlSeconds", "120");
+        try {
+            long seconds = Long.parseLong(value.trim());
+            if (seconds > 0) {
+                return seconds;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        System.out.println("Ignoring invalid value for HoldTtlSeconds: " + value);
+        return 120;
+    }
+
+    public ReservationService(AssignmentStrategy strategy) {
+        this(strategy, Duration.ofSeconds(120));
+    }
+
+    public ReservationService(AssignmentStrategy strategy, Duration holdTtl) {
+        this.strategy = strategy;
+        this.holdTtl = holdTtl;
+    }
+
+    public Duration getHoldTtl() {
+        return holdTtl;
+    }
+
+    public ReservationResult reserve(Date date, String vaccineName, String patientName) throws SQLException {
+        LocalDate day = date.toLocalDate();
+        return claim(day, vaccineName, (appointmentId, caregiver) -> {
+            Repositories.appointments().insert(
+                    new AppointmentRecord(appointmentId, day, patientName, caregiver, vaccineName));
+            return ReservationResult.booked(appointmentId, caregiver);
+        });
+    }
+
+    /**
+     * Claims a caregiver slot and a dose for the patient without booking them yet. The result carries the
+     * token to confirm the hold with before it expires.
+     */
+    public ReservationResult hold(Date date, String vaccineName, String patientName) throws SQLException {
+        LocalDate day = date.toLocalDate();
+        String token = UUID.randomUUID().toString();
+        Instant expiresAt = Instant.now().plus(holdTtl);
+        return claim(day, vaccineName, (appointmentId, caregiver) -> {
+            Repositories.holds().insert(
+                    new HoldRecord(token, appointmentId, day, patientName, caregiver, vaccineName, expiresAt));
+            return ReservationResult.held(appointmentId, caregiver, token, expiresAt);
+        });
+    }
+
+    /**
+     * Books the appointment a hold of the patient was made for. The slot and the dose were claimed by the hold,
+     * so this cannot run out of either.
+     */
+    public ReservationResult confirm(String token, String patientName) throws SQLException {
+        return Repositories.get().inTransaction(status -> {
+            HoldRecord hold = Repositories.holds().find(token);
+            if (hold == null || !hold.getPatient().equalsIgnoreCase(patientName)) {
+                status.setRollbackOnly();
+                return ReservationResult.failed(ReservationResult.Status.NO_HOLD);
+            }
+            // an expired hold belongs to the sweeper even if it has not released it yet
+            if (!hold.getExpiresAt().isAfter(Instant.now())) {
+                status.setRollbackOnly();
+                return ReservationResult.failed(ReservationResult.Status.EXPIRED);
+            }
+            // the sweeper or a concurrent confirm got there first
+            if (!Repositories.holds().delete(token)) {
+                status.setRollbackOnly();
+                return ReservationResult.failed(ReservationResult.Status.NO_HOLD);
+            }
+            Repositories.appointments().insert(new AppointmentRecord(hold.getAppointmentId(), hold.getDate(),
+                    hold.getPatient(), hold.getCaregiver(), hold.getVaccine()));
+            return ReservationResult.booked(hold.getAppointmentId(), hold.getCaregiver());
+        });
+    }
+
+    /**
+     * Releases up to {@code limit} expired holds in one transaction, giving their slots and doses back.
+     * Returns how many were released.
+     */
+    public int releaseExpired(int limit) throws SQLException {
+        List<HoldRecord> released = new ArrayList<>();
+        List<HoldRecord> returning = new ArrayList<>();
+        boolean committed = false;
+        try {
+            Repositories.get().inTransaction(status -> {
+                for (HoldRecord hold : Repositories.holds().findExpired(Instant.now(), limit)) {
+                    // a confirm that got there first leaves nothing to release
+                    if (!Repositories.holds().delete(hold.getToken())) {
+                        continue;
+                    }
+                    Repositories.availabilities().insertMissing(hold.getCaregiver(),
+                            Collections.singletonList(hold.getDate()));
+                    if (doseInventory.isEnabled()) {
+                        try {
+                            doseInventory.beginReturn(hold.getVaccine(), hold.getAppointmentId());
+                        } catch (IOException e) {
+                            throw new SQLException("Could not write the dose journal", e);
+                        }
+                        returning.add(hold);
+                    } else {
+                        Repositories.vaccines().addDoses(hold.getVaccine(), 1);
+                    }
+                    released.add(hold);
+                }
+                return null;
+            });
+            committed = true;
+        } finally {
+            for (HoldRecord hold : returning) {
+                if (committed) {
+                    doseInventory.commitReturn(hold.getVaccine(), hold.getAppointmentId());
+                } else {
+                    doseInventory.abortReturn(hold.getAppointmentId());
+                }
+            }
+        }
+        for (HoldRecord hold : released) {
+            if (!doseInventory.isEnabled()) {
+                Vaccine.invalidate(hold.getVaccine());
+            }
+            availabilityIndex.add(hold.getDate(), hold.getCaregiver());
+            waitlist.publish(CapacityEvent.freed(hold.getDate(), hold.getVaccine()));
+            if (!hold.getDate().isBefore(LocalDate.now())) {
+                caregiverLoad.decrement(hold.getCaregiver());
+            }
+        }
+        return released.size();
+    }
+
+    // claims a slot and a dose and lets {@code record} write what they were claimed for, all in one transaction
+    private ReservationResult claim(LocalDate day, String vaccineName, Claim record) throws SQLException {
+        // leased outside the booking transaction so a rolled back booking does not give the block back
+        int appointmentId = Repositories.appointments().nextId();
+        Booking booking = new Booking();
+        boolean booked = false;
+        try {
+            ReservationResult result = Repositories.get().inTransaction(status -> {
+                booking.caregiver = claimSlot(day);
+                if (booking.caregiver == null) {
+                    status.setRollbackOnly();
+                    return ReservationResult.failed(ReservationResult.Status.NO_SLOT);
+                }
+                if (!takeDose(vaccineName, appointmentId, booking)) {
+                    status.setRollbackOnly();
+                    return ReservationResult.failed(ReservationResult.Status.NO_DOSE);
+                }
+                return record.write(appointmentId, booking.caregiver);
+            });
+            if (result.getStatus() == ReservationResult.Status.NO_SLOT
+                    || result.getStatus() == ReservationResult.Status.NO_DOSE) {
+                return result;
+            }
+            booked = true;
+            if (booking.doseTaken) {
+                doseInventory.commitTake(vaccineName, appointmentId);
+            } else {
+                Vaccine.invalidate(vaccineName);
+            }
+            availabilityIndex.remove(day, booking.caregiver);
+            return result;
+        } finally {
+            if (booking.doseTaken && !booked) {
+                doseInventory.abortTake(vaccineName, appointmentId);
+            }
+            // the claim was counted as load while in flight, take it back if the booking did not happen
+            if (booking.caregiver != null && !booked) {
+                caregiverLoad.decrement(booking.caregiver);
+            }
+        }
+    }
+
+    /**
+     * Cancels an appointment of the given patient, or caregiver, giving the caregiver's slot and the dose back
+     * in the same transaction. Returns false if the user has no appointment with that id.
+     */
+    public boolean cancel(int appointmentId, String username, boolean caregiver) throws SQLException {
+        Cancellation cancellation = new Cancellation();
+        boolean cancelled = false;
+        try {
+            AppointmentRecord appointment = Repositories.get().inTransaction(status -> {
+                AppointmentRecord found = Repositories.appointments().find(appointmentId, username, caregiver);
+                // a concurrent cancel of the same appointment deletes nothing here and gives nothing back
+                if (found == null || !Repositories.appointments().delete(appointmentId)) {
+                    status.setRollbackOnly();
+                    return null;
+                }
+                // the caregiver may have uploaded the same date again since the booking
+                Repositories.availabilities().insertMissing(found.getCaregiver(),
+                        Collections.singletonList(found.getDate()));
+                if (doseInventory.isEnabled()) {
+                    try {
+                        doseInventory.beginReturn(found.getVaccine(), appointmentId);
+                    } catch (IOException e) {
+                        throw new SQLException("Could not write the dose journal", e);
+                    }
+                    cancellation.returning = true;
+                } else {
+                    Repositories.vaccines().addDoses(found.getVaccine(), 1);
+                }
+                return found;
+            });
+            if (appointment == null) {
+                return false;
+            }
+            cancelled = true;
+            if (cancellation.returning) {
+                doseInventory.commitReturn(appointment.getVaccine(), appointmentId);
+            } else {
+                Vaccine.invalidate(appointment.getVaccine());
+            }
+            availabilityIndex.add(appointment.getDate(), appointment.getCaregiver());
+            waitlist.publish(CapacityEvent.freed(appointment.getDate(), appointment.getVaccine()));
+            if (!appointment.getDate().isBefore(LocalDate.now())) {
+                caregiverLoad.decrement(appointment.getCaregiver());
+            }
+            return true;
+        } finally {
+            if (cancellation.returning && !cancelled) {
+                doseInventory.abortReturn(appointmentId);
+            }
+        }
+    }
+
+    // tries the caregivers available on the date in the strategy's order until one removal succeeds,
+    // the claimed caregiver's load is already incremented when this returns
+    private String claimSlot(LocalDate day) throws SQLException {
+        List<String> candidates = availabilityIndex.caregiversOn(day);
+        if (candidates.isEmpty()) {
+            // the index may not have seen availabilities uploaded by another process yet
+            candidates = Repositories.availabilities().caregiversOn(day);
+        }
+        if (candidates.isEmpty()) {
+            return null;
+        }
+        for (String caregiver : strategy.order(day, candidates, caregiverLoad)) {
+            // count the attempt right away so concurrent reservations steer around this caregiver
+            caregiverLoad.increment(caregiver);
+            boolean claimed = false;
+            try {
+                claimed = Repositories.availabilities().remove(day, caregiver);
+            } finally {
+                if (!claimed) {
+                    caregiverLoad.decrement(caregiver);
+                }
+            }
+            if (claimed) {
+                return caregiver;
+            }
+            // someone else booked this slot, the index entry is stale
+            availabilityIndex.remove(day, caregiver);
+        }
+        return null;
+    }
+
+    // takes one dose from the inventory, or from the table inside the booking transaction
+    private boolean takeDose(String vaccineName, int appointmentId, Booking booking) throws SQLException {
+        if (!doseInventory.isEnabled()) {
+            return Repositories.vaccines().takeDoses(vaccineName, 1);
+        }
+        try {
+            booking.doseTaken = doseInventory.beginTake(vaccineName, appointmentId);
+        } catch (IOException e) {
+            throw new SQLException("Could not write the dose journal", e);
+        }
+        return booking.doseTaken;
+    }
+
+    private interface Claim {
+        ReservationResult write(int appointmentId, String caregiver) throws SQLException;
+    }
+
+    // what a booking has done so far, so the caller can undo the in-memory parts if it does not commit
+    private static class Booking {
+        private String caregiver = null;
+        private boolean doseTaken = false;
+    }
+
+    private static class Cancellation {
+        private boolean returning = false;
+    }
+}
@@ -0,0 +1,76 @@
+package scheduler.service;
+
+import scheduler.model.Vaccine;
+import scheduler.repository.Repositories;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+
+/**
+ * Answers search_caregiver_schedule.
+ *
+ * The caregivers of a date and the vaccine inventory are looked up separately, so a search costs one row per
+ * caregiver plus one per vaccine instead of their product. Both come from memory when the availability index
+ * and the dose inventory are running, and from one repository call each otherwise.
+ */
+public class ScheduleSearch {
+
+    private final AvailabilityIndex availabilityIndex = AvailabilityIndex.getInstance();
+    private final DoseInventory doseInventory = DoseInventory.getInstance();
+
+    /**
+     * Returns the caregivers available on the date in alphabetical order.
+     */
+    public List<String> caregiversOn(LocalDate date) throws SQLException {
+        if (availabilityIndex.isLoaded()) {
+            return availabilityIndex.caregiversOn(date);
+        }
+        return Repositories.availabilities().caregiversOn(date);
+    }
+
+    /**
+     * Returns the doses left per vaccine, sorted by name.
+     */
+    public Map<String, Integer> vaccineDoses() throws SQLException {
+        // the table lags behind the inventory until its next flush
+        if (doseInventory.isEnabled()) {
+            return doseInventory.snapshot();
+        }
+        return Repositories.vaccines().findAll();
+    }
+
+    /**
+     * Returns the number of open caregiver slots per day between {@code from} and {@code to} inclusive,
+     * days without any are left out.
+     */
+    public NavigableMap<LocalDate, Integer> openSlots(LocalDate from, LocalDate to) throws SQLException {
+        if (availabilityIndex.isLoaded()) {
+            return availabilityIndex.countsBetween(from, to);
+        }
+        return Repositories.availabilities().countsBetween(from, to);
+    }
+
+    /**
+     * Returns the doses left of the vaccine, or -1 if it does not exist.
+     */
+    public int dosesLeft(String vaccineName) throws SQLException {
+        if (doseInventory.isEnabled()) {
+            return doseInventory.available(vaccineName);
+        }
+        Vaccine vaccine = new Vaccine.VaccineGetter(vaccineName).get();
+        return vaccine == null ? -1 : vaccine.getAvailableDoses();
+    }
+
+    /**
+     * Returns the first date on or after {@code from} with an open caregiver slot, or null if there is none.
+     */
+    public LocalDate nextAvailable(LocalDate from) throws SQLException {
+        if (availabilityIndex.isLoaded()) {
+            return availabilityIndex.nextAvailable(from);
+        }
+        return Repositories.availabilities().nextAvailable(from);
+    }
+}
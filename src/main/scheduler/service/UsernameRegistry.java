@@ -0,0 +1,127 @@
+package scheduler.service;
+
+import scheduler.repository.Repositories;
+import scheduler.repository.UserRepository;
+import scheduler.util.BloomFilter;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Answers "is this username taken" for one user table without going to the database for new names.
+ *
+ * A Bloom filter over all usernames is built at startup, a name it has never seen is definitely free. Only
+ * possible hits are checked against the table, and names confirmed to exist are kept in a small cache.
+ * The filter only learns the names created in this process after startup. The database stays the source of
+ * truth: a name registered by another process since is caught by the primary key when it is inserted, and
+ * {@link #existsInTable} tells that failure apart from others.
+ */
+public class UsernameRegistry {
+
+    private static final int MIN_EXPECTED = 100000;
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+    private static final int POSITIVE_CACHE_SIZE = 1024;
+
+    private static final UsernameRegistry patients = new UsernameRegistry(Repositories::patients);
+    private static final UsernameRegistry caregivers = new UsernameRegistry(Repositories::caregivers);
+
+    // looked up on use, the backend is only chosen once the scheduler starts
+    private final Supplier<UserRepository> users;
+    private volatile BloomFilter filter = null;
+    private final Set<String> positives = Collections.newSetFromMap(
+            Collections.synchronizedMap(new LinkedHashMap<String, Boolean>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                    return size() > POSITIVE_CACHE_SIZE;
+                }
+            }));
+
+    private UsernameRegistry(Supplier<UserRepository> users) {
+        this.users = users;
+    }
+
+    public static UsernameRegistry patients() {
+        return patients;
+    }
+
+    public static UsernameRegistry caregivers() {
+        return caregivers;
+    }
+
+    // the tables use a case-insensitive collation, so "Alice" and "alice" are the same user
+    private static String key(String username) {
+        return username.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Builds the filter from every username currently in the table.
+     */
+    public void load() throws SQLException {
+        List<String> names = new ArrayList<>();
+        for (String username : users.get().usernames()) {
+            names.add(key(username));
+        }
+        BloomFilter fresh = new BloomFilter(Math.max(MIN_EXPECTED, names.size() * 2), FALSE_POSITIVE_RATE);
+        for (String name : names) {
+            fresh.put(name);
+        }
+        // names registered while we were reading the table are still in the positive cache
+        synchronized (positives) {
+            for (String name : positives) {
+                fresh.put(name);
+            }
+        }
+        filter = fresh;
+    }
+
+    public boolean isLoaded() {
+        return filter != null;
+    }
+
+    /**
+     * Records a newly registered username.
+     */
+    public void add(String username) {
+        String key = key(username);
+        BloomFilter current = filter;
+        if (current != null) {
+            current.put(key);
+        }
+        positives.add(key);
+    }
+
+    /**
+     * Asks the table directly whether the username exists and records it if it does, for when an insert the
+     * filter let through has failed.
+     */
+    public boolean existsInTable(String username) throws SQLException {
+        boolean exists = users.get().exists(username);
+        if (exists) {
+            add(username);
+        }
+        return exists;
+    }
+
+    public boolean exists(String username) throws SQLException {
+        String key = key(username);
+        BloomFilter current = filter;
+        if (current != null && !current.mightContain(key)) {
+            return false;
+        }
+        if (positives.contains(key)) {
+            return true;
+        }
+        boolean exists = users.get().exists(username);
+        if (exists) {
+            positives.add(key);
+        }
+        return exists;
+    }
+}
@@ -0,0 +1,240 @@
+package scheduler.service;
+
+import java.sql.Date;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Patients waiting for a vaccine on any date of a range, served first come first served.
+ *
+ * Adding doses, uploading availability, cancelling and releasing holds publish capacity events. A single
+ * dispatcher thread drains the events that queued up, then makes one pass over the waiters in the order
+ * they joined and books those the new capacity could serve, so waiting patients do not have to retry
+ * reserve themselves. The waitlist lives in this process only and is empty after a restart.
+ */
+public class Waitlist {
+
+    // events drained into one allocation pass at most
+    private static final int MAX_EVENTS_PER_PASS = 1000;
+
+    private static final Waitlist instance = new Waitlist();
+
+    private final AtomicLong ids = new AtomicLong();
+    // waiting entries in the order they joined
+    private final LinkedHashMap<Long, Entry> waiting = new LinkedHashMap<>();
+    // bookings made for each patient, by lower-cased username, until the patient looks at them
+    private final Map<String, List<Entry>> booked = new LinkedHashMap<>();
+    private final BlockingQueue<CapacityEvent> events = new LinkedBlockingQueue<>();
+    private final AtomicLong allocations = new AtomicLong();
+    private ReservationService reservationService = null;
+    private ScheduleSearch scheduleSearch = null;
+    private Thread dispatcher = null;
+
+    private Waitlist() {
+    }
+
+    public static Waitlist getInstance() {
+        return instance;
+    }
+
+    /**
+     * Starts the dispatcher, events published before are dropped.
+     */
+    public synchronized void start(ReservationService reservationService, ScheduleSearch scheduleSearch) {
+        if (dispatcher != null) {
+            return;
+        }
+        this.reservationService = reservationService;
+        this.scheduleSearch = scheduleSearch;
+        events.clear();
+        dispatcher = new Thread(this::dispatch, "waitlist-dispatcher");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    public synchronized boolean isEnabled() {
+        return dispatcher != null;
+    }
+
+    /**
+     * Adds the patient to the end of the waitlist and returns their position in it.
+     */
+    public int enqueue(String patient, String vaccine, LocalDate from, LocalDate to) {
+        int position;
+        synchronized (this) {
+            Entry entry = new Entry(ids.incrementAndGet(), patient, vaccine, from, to);
+            waiting.put(entry.id, entry);
+            position = waiting.size();
+        }
+        // capacity may have come back between the failed reservation and joining the list
+        publish(CapacityEvent.slots(from, to));
+        return position;
+    }
+
+    public void publish(CapacityEvent event) {
+        if (isEnabled()) {
+            events.add(event);
+        }
+    }
+
+    /**
+     * Returns the entries the patient is still waiting on, in the order they joined.
+     */
+    public synchronized List<Entry> waitingFor(String patient) {
+        List<Entry> entries = new ArrayList<>();
+        for (Entry entry : waiting.values()) {
+            if (entry.patient.equalsIgnoreCase(patient)) {
+                entries.add(entry);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Returns the bookings made from the waitlist for the patient since the last call.
+     */
+    public synchronized List<Entry> takeBooked(String patient) {
+        List<Entry> entries = booked.remove(patient.toLowerCase(Locale.ROOT));
+        return entries == null ? new ArrayList<>() : entries;
+    }
+
+    public long getAllocations() {
+        return allocations.get();
+    }
+
+    private void dispatch() {
+        List<CapacityEvent> batch = new ArrayList<>();
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                batch.add(events.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            events.drainTo(batch, MAX_EVENTS_PER_PASS - 1);
+            try {
+                allocate(batch);
+            } catch (SQLException | RuntimeException e) {
+                System.out.println("Error occurred when serving the waitlist");
+            }
+            batch.clear();
+        }
+    }
+
+    // one pass over the waiters the events could serve, oldest first
+    private void allocate(List<CapacityEvent> batch) throws SQLException {
+        LocalDate today = LocalDate.now();
+        List<Entry> candidates = new ArrayList<>();
+        synchronized (this) {
+            Iterator<Entry> it = waiting.values().iterator();
+            while (it.hasNext()) {
+                Entry entry = it.next();
+                if (entry.to.isBefore(today)) {
+                    it.remove();
+                } else if (matchesAny(batch, entry)) {
+                    candidates.add(entry);
+                }
+            }
+        }
+        // once a vaccine runs out nobody else waiting for it is tried in this pass
+        Set<String> exhausted = new HashSet<>();
+        for (Entry entry : candidates) {
+            String vaccine = entry.vaccine.toLowerCase(Locale.ROOT);
+            if (exhausted.contains(vaccine)) {
+                continue;
+            }
+            if (scheduleSearch.dosesLeft(entry.vaccine) <= 0) {
+                exhausted.add(vaccine);
+                continue;
+            }
+            LocalDate from = entry.from.isBefore(today) ? today : entry.from;
+            for (LocalDate date : scheduleSearch.openSlots(from, entry.to).keySet()) {
+                ReservationResult result = reservationService.reserve(Date.valueOf(date), entry.vaccine,
+                        entry.patient);
+                if (result.isBooked()) {
+                    book(entry, date, result);
+                    break;
+                }
+                if (result.getStatus() == ReservationResult.Status.NO_DOSE) {
+                    exhausted.add(vaccine);
+                    break;
+                }
+            }
+        }
+    }
+
+    private static boolean matchesAny(List<CapacityEvent> batch, Entry entry) {
+        for (CapacityEvent event : batch) {
+            if (event.matches(entry.vaccine, entry.from, entry.to)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private synchronized void book(Entry entry, LocalDate date, ReservationResult result) {
+        waiting.remove(entry.id);
+        entry.date = date;
+        entry.appointmentId = result.getAppointmentId();
+        entry.caregiver = result.getCaregiver();
+        booked.computeIfAbsent(entry.patient.toLowerCase(Locale.ROOT), p -> new ArrayList<>()).add(entry);
+        allocations.incrementAndGet();
+    }
+
+    /**
+     * A patient waiting for a vaccine between two dates, and the appointment once one was booked.
+     */
+    public static class Entry {
+        private final long id;
+        private final String patient;
+        private final String vaccine;
+        private final LocalDate from;
+        private final LocalDate to;
+        private LocalDate date = null;
+        private int appointmentId = -1;
+        private String caregiver = null;
+
+        private Entry(long id, String patient, String vaccine, LocalDate from, LocalDate to) {
+            this.id = id;
+            this.patient = patient;
+            this.vaccine = vaccine;
+            this.from = from;
+            this.to = to;
+        }
+
+        // Getters
+        public String getVaccine() {
+            return vaccine;
+        }
+
+        public LocalDate getFrom() {
+            return from;
+        }
+
+        public LocalDate getTo() {
+            return to;
+        }
+
+        public LocalDate getDate() {
+            return date;
+        }
+
+        public int getAppointmentId() {
+            return appointmentId;
+        }
+
+        public String getCaregiver() {
+            return caregiver;
+        }
+    }
+}
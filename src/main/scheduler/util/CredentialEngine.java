@@ -0,0 +1,130 @@
+package scheduler.util;
+
+import java.security.MessageDigest;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs password hashing on a dedicated pool with one thread per core.
+ *
+ * Hashing is CPU bound, so running more of it at once than there are cores only slows every request down.
+ * Work beyond the pool waits in a bounded queue; once the queue is full new requests are turned away with an
+ * {@link OverloadedException} instead of piling up, which keeps a login storm from starving the rest of the
+ * scheduler.
+ */
+public class CredentialEngine {
+
+    private static final CredentialEngine instance = new CredentialEngine(
+            Runtime.getRuntime().availableProcessors(), 256, 5000);
+
+    private final ThreadPoolExecutor executor;
+    private final long timeoutMillis;
+
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    public CredentialEngine(int threads, int queueCapacity, long timeoutMillis) {
+        AtomicInteger count = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+            Thread t = new Thread(r, "credential-hasher-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }, new ThreadPoolExecutor.AbortPolicy());
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    public static CredentialEngine getInstance() {
+        return instance;
+    }
+
+    /**
+     * Hashes a new password with the given salt.
+     */
+    public byte[] hash(String password, byte[] salt) {
+        return await(submit(() -> Util.generateHash(password, salt)));
+    }
+
+    /**
+     * Starts hashing a new password without waiting for it, for callers that keep several hashes in flight.
+     * Throws {@link OverloadedException} right away if the queue is full.
+     */
+    public Future<byte[]> hashAsync(String password, byte[] salt) {
+        return submit(() -> {
+            byte[] hash = Util.generateHash(password, salt);
+            completed.incrementAndGet();
+            return hash;
+        });
+    }
+
+    /**
+     * Checks a password against a stored salt and hash.
+     */
+    public boolean verify(String password, byte[] salt, byte[] expectedHash) {
+        byte[] calculatedHash = hash(password, salt);
+        // constant time comparison so the response time does not leak how much of the hash matched
+        return MessageDigest.isEqual(expectedHash, calculatedHash);
+    }
+
+    private Future<byte[]> submit(Callable<byte[]> task) {
+        try {
+            return executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            throw new OverloadedException();
+        }
+    }
+
+    private byte[] await(Future<byte[]> future) {
+        try {
+            byte[] result = future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            completed.incrementAndGet();
+            return result;
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            rejected.incrementAndGet();
+            throw new OverloadedException();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            throw new OverloadedException();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    public int getQueued() {
+        return executor.getQueue().size();
+    }
+
+    public int getActive() {
+        return executor.getActiveCount();
+    }
+
+    public long getCompleted() {
+        return completed.get();
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    /**
+     * Thrown when the hashing pool has too much work queued to take on more.
+     */
+    public static class OverloadedException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        public OverloadedException() {
+            super("Too many requests are waiting for password hashing");
+        }
+    }
+}
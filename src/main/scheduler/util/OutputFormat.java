@@ -0,0 +1,30 @@
+package scheduler.util;
+
+import java.util.Locale;
+
+/**
+ * How listings are written: the labelled lines of the console, tab separated values with a header row, or
+ * one JSON object per line.
+ */
+public enum OutputFormat {
+    TEXT, TSV, JSON;
+
+    /**
+     * Returns the format with the name in any case, or null if there is none.
+     */
+    public static OutputFormat parse(String name) {
+        try {
+            return valueOf(name.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the format set by OutputFormat, text if it is unset or unknown.
+     */
+    public static OutputFormat configured() {
+        OutputFormat format = parse(System.getenv().getOrDefault("OutputFormat", "text"));
+        return format == null ? TEXT : format;
+    }
+}
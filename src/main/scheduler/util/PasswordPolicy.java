@@ -0,0 +1,52 @@
+package scheduler.util;
+
+/**
+ * The strong password guidelines of create_patient, shared with the import so accounts cannot get in with a
+ * weaker password by another path.
+ */
+public final class PasswordPolicy {
+
+    private static final int MIN_LENGTH = 8;
+
+    private PasswordPolicy() {
+    }
+
+    /**
+     * Returns what the password is missing, or null if it is strong enough.
+     */
+    public static String check(String password) {
+        if (password.length() < MIN_LENGTH) {
+            return "A strong password has to be at least 8 characters.";
+        }
+        int lower = 0;
+        int upper = 0;
+        int number = 0;
+        int special = 0;
+        for (int i = 0; i < password.length(); i++) {
+            char c = password.charAt(i);
+            if (c >= 'a' && c <= 'z') {
+                lower++;
+            }
+            if (c >= 'A' && c <= 'Z') {
+                upper++;
+            }
+            if (c >= '0' && c <= '9') {
+                number++;
+            }
+            if (c == '!' || c == '*' || c == '/' || c == '_') {
+                special++;
+            }
+        }
+        if (lower == 0) {
+            return "A strong password should include lowercase letter.";
+        } else if (upper == 0) {
+            return "A strong password should include uppercase letter.";
+        } else if (number == 0) {
+            return "A strong password should include a number.";
+        } else if (special == 0) {
+            return "A strong password has to included of at least one special character, " +
+                    "from “!”, “@”, “#”, “?”.";
+        }
+        return null;
+    }
+}
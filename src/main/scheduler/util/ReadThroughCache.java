@@ -0,0 +1,158 @@
+package scheduler.util;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded cache in front of a lookup, evicting the least recently used entry when full and reloading
+ * entries older than the TTL.
+ *
+ * Misses are loaded outside the lock, so a slow lookup never blocks hits on other keys. Absent values are
+ * not cached, a row created later is found on the next lookup. Write paths call {@link #invalidate} so this
+ * process never serves what it has just changed, the TTL bounds how long changes made elsewhere stay hidden.
+ */
+public class ReadThroughCache<K, V> {
+
+    /**
+     * Loads the value of a key that is not cached, returns null if there is none.
+     */
+    public interface Loader<K, V, E extends Exception> {
+        V load(K key) throws E;
+    }
+
+    private static final List<ReadThroughCache<?, ?>> caches = new CopyOnWriteArrayList<>();
+
+    private final String name;
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LinkedHashMap<K, Entry<V>> entries;
+    // when each key was last invalidated, so a load that started before can tell its value is stale
+    private final Map<K, Long> invalidations = new HashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public ReadThroughCache(String name, int maxSize, long ttlMillis) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive!");
+        }
+        this.name = name;
+        this.maxSize = maxSize;
+        this.ttlNanos = ttlMillis * 1_000_000;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                if (size() > ReadThroughCache.this.maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+        caches.add(this);
+    }
+
+    /**
+     * Creates a cache sized by CacheMaxEntries (default 10000) with a TTL of CacheTtlSeconds (default 300).
+     */
+    public static <K, V> ReadThroughCache<K, V> configured(String name) {
+        int maxSize = Integer.parseInt(System.getenv().getOrDefault("CacheMaxEntries", "10000"));
+        long ttlSeconds = Long.parseLong(System.getenv().getOrDefault("CacheTtlSeconds", "300"));
+        return new ReadThroughCache<>(name, maxSize, ttlSeconds * 1000);
+    }
+
+    public <E extends Exception> V get(K key, Loader<K, V, E> loader) throws E {
+        synchronized (this) {
+            Entry<V> entry = entries.get(key);
+            if (entry != null) {
+                if (System.nanoTime() - entry.loadedAt < ttlNanos) {
+                    hits.increment();
+                    return entry.value;
+                }
+                entries.remove(key);
+                expirations.increment();
+            }
+        }
+        misses.increment();
+        long loadedAt = System.nanoTime();
+        V value = loader.load(key);
+        if (value != null) {
+            synchronized (this) {
+                // an invalidation that raced with the load wins, the value may be from before the write
+                if (!invalidatedSince(key, loadedAt)) {
+                    entries.put(key, new Entry<>(value, loadedAt));
+                }
+            }
+        }
+        return value;
+    }
+
+    private boolean invalidatedSince(K key, long loadedAt) {
+        Long invalidatedAt = invalidations.get(key);
+        return invalidatedAt != null && invalidatedAt >= loadedAt;
+    }
+
+    public synchronized void invalidate(K key) {
+        entries.remove(key);
+        long now = System.nanoTime();
+        invalidations.put(key, now);
+        // forget invalidations older than the TTL, no load takes that long
+        invalidations.values().removeIf(at -> now - at > ttlNanos);
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    @Override
+    public String toString() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return String.format("%-12s size=%d/%d hits=%d misses=%d hit_rate=%.1f%% expired=%d evicted=%d", name,
+                size(), maxSize, hitCount, misses.sum(), total == 0 ? 0.0 : 100.0 * hitCount / total,
+                expirations.sum(), evictions.sum());
+    }
+
+    /**
+     * Returns one line per cache created in this process.
+     */
+    public static String report() {
+        StringBuilder sb = new StringBuilder();
+        for (ReadThroughCache<?, ?> cache : caches) {
+            sb.append(cache).append(System.lineSeparator());
+        }
+        return sb.toString();
+    }
+
+    private static class Entry<V> {
+        private final V value;
+        private final long loadedAt;
+
+        Entry(V value, long loadedAt) {
+            this.value = value;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
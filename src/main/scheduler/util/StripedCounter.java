@@ -0,0 +1,69 @@
+package scheduler.util;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * A non-negative counter split over several stripes so concurrent decrements rarely touch the same word.
+ *
+ * Each thread starts at its own stripe and only moves on to the others when that stripe is empty, so
+ * {@link #tryDecrement()} never takes a lock and never lets the total drop below zero.
+ */
+public class StripedCounter {
+
+    // stripes are spaced out so two of them never share a cache line
+    private static final int PADDING = 16;
+
+    private final int stripes;
+    private final AtomicIntegerArray cells;
+
+    public StripedCounter(int stripes) {
+        this.stripes = Math.max(1, stripes);
+        this.cells = new AtomicIntegerArray(this.stripes * PADDING);
+    }
+
+    private int home() {
+        return (int) (Thread.currentThread().getId() % stripes);
+    }
+
+    public void add(int n) {
+        if (n < 0) {
+            throw new IllegalArgumentException("Use tryDecrement to take from the counter!");
+        }
+        cells.addAndGet(home() * PADDING, n);
+    }
+
+    /**
+     * Takes one unit, returns false if the counter is zero.
+     */
+    public boolean tryDecrement() {
+        int start = home();
+        for (int i = 0; i < stripes; i++) {
+            int index = ((start + i) % stripes) * PADDING;
+            int value;
+            while ((value = cells.get(index)) > 0) {
+                if (cells.compareAndSet(index, value, value - 1)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    public long sum() {
+        long total = 0;
+        for (int i = 0; i < stripes; i++) {
+            total += cells.get(i * PADDING);
+        }
+        return total;
+    }
+
+    /**
+     * Replaces the value. Only safe while no other thread is updating the counter.
+     */
+    public void reset(int value) {
+        for (int i = 0; i < stripes; i++) {
+            cells.set(i * PADDING, 0);
+        }
+        cells.set(0, Math.max(0, value));
+    }
+}
@@ -0,0 +1,164 @@
+package scheduler.util;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes the rows of a listing in an {@link OutputFormat}.
+ *
+ * Rows are formatted into a buffer the session reuses and written to the stream a chunk at a time, so a long
+ * listing costs a few large writes instead of one flush per line, which is what makes it slow over a socket
+ * or into a pipe. Closing the writer writes what is left.
+ *
+ * Lines that are not rows, such as the hint that more rows follow, are written as they are in text, as
+ * comments in TSV and as a message object in JSON so the output stays machine readable.
+ */
+public class TableWriter implements AutoCloseable {
+
+    /** Characters buffered before they are written. */
+    public static final int CHUNK_SIZE = 8192;
+
+    private final PrintStream out;
+    private final OutputFormat format;
+    private final StringBuilder buffer;
+    private final List<String> keys = new ArrayList<>();
+    private final List<String> labels = new ArrayList<>();
+    private int rows = 0;
+
+    public TableWriter(PrintStream out, OutputFormat format, StringBuilder buffer) {
+        this.out = out;
+        this.format = format;
+        this.buffer = buffer;
+        buffer.setLength(0);
+    }
+
+    /**
+     * Adds a column, the key names it in TSV and JSON and the label is written before the value in text.
+     */
+    public TableWriter column(String key, String label) {
+        if (rows > 0) {
+            throw new IllegalStateException("Columns cannot be added after the first row!");
+        }
+        keys.add(key);
+        labels.add(label);
+        return this;
+    }
+
+    public void row(Object... values) {
+        if (values.length != keys.size()) {
+            throw new IllegalArgumentException("Expected " + keys.size() + " values, got " + values.length);
+        }
+        if (rows++ == 0 && format == OutputFormat.TSV) {
+            for (int i = 0; i < keys.size(); i++) {
+                buffer.append(i == 0 ? "" : "\t").append(keys.get(i));
+            }
+            endLine();
+        }
+        for (int i = 0; i < values.length; i++) {
+            switch (format) {
+                case TEXT:
+                    buffer.append(i == 0 ? "" : " ").append(labels.get(i)).append(values[i]);
+                    break;
+                case TSV:
+                    buffer.append(i == 0 ? "" : "\t");
+                    appendTsv(String.valueOf(values[i]));
+                    break;
+                default:
+                    buffer.append(i == 0 ? "{" : ",");
+                    appendJsonString(keys.get(i));
+                    buffer.append(':');
+                    appendJson(values[i]);
+            }
+        }
+        if (format == OutputFormat.JSON) {
+            buffer.append('}');
+        }
+        endLine();
+    }
+
+    public void note(String message) {
+        switch (format) {
+            case TEXT:
+                buffer.append(message);
+                break;
+            case TSV:
+                buffer.append("# ").append(message);
+                break;
+            default:
+                buffer.append("{\"message\":");
+                appendJsonString(message);
+                buffer.append('}');
+        }
+        endLine();
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    private void endLine() {
+        buffer.append(System.lineSeparator());
+        if (buffer.length() >= CHUNK_SIZE) {
+            writeBuffer();
+        }
+    }
+
+    private void writeBuffer() {
+        out.append(buffer);
+        buffer.setLength(0);
+    }
+
+    // tabs, line breaks and backslashes are escaped so a value never splits a row
+    private void appendTsv(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\t': buffer.append("\\t"); break;
+                case '\n': buffer.append("\\n"); break;
+                case '\r': buffer.append("\\r"); break;
+                case '\\': buffer.append("\\\\"); break;
+                default: buffer.append(c);
+            }
+        }
+    }
+
+    private void appendJson(Object value) {
+        if (value == null) {
+            buffer.append("null");
+        } else if (value instanceof Number) {
+            buffer.append(value);
+        } else {
+            appendJsonString(value.toString());
+        }
+    }
+
+    private void appendJsonString(String value) {
+        buffer.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': buffer.append("\\\""); break;
+                case '\\': buffer.append("\\\\"); break;
+                case '\n': buffer.append("\\n"); break;
+                case '\r': buffer.append("\\r"); break;
+                case '\t': buffer.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        buffer.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        buffer.append(c);
+                    }
+            }
+        }
+        buffer.append('"');
+    }
+
+    @Override
+    public void close() {
+        if (buffer.length() > 0) {
+            writeBuffer();
+        }
+        out.flush();
+    }
+}